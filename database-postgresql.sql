@@ -0,0 +1,80 @@
+-- PostgreSQL only: indexes for contact search (app.contact.search-mode=trigram/auto) and cursor paging,
+-- plus the columns and tables added after the original schema
+
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS phone_digits VARCHAR(100);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS phone_digits_reversed VARCHAR(100);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS email_normalized VARCHAR(100);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS first_name_phonetic VARCHAR(255);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS last_name_phonetic VARCHAR(255);
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS contact_counters(
+  username    VARCHAR(100) NOT NULL,
+  total       BIGINT NOT NULL,
+  PRIMARY KEY (username)
+);
+
+-- backfill, users without contacts get their row on their first write
+INSERT INTO contact_counters (username, total)
+SELECT username, count(*) FROM contacts GROUP BY username
+ON CONFLICT (username) DO NOTHING;
+
+-- login tokens moved from users into their own table, many sessions per user
+CREATE TABLE IF NOT EXISTS sessions(
+  token       VARCHAR(100) NOT NULL,
+  username    VARCHAR(100) NOT NULL REFERENCES users (username),
+  expired_at  BIGINT NOT NULL,
+  created_at  BIGINT NOT NULL,
+  refresh_token_hash VARCHAR(64) NULL UNIQUE,
+  refresh_expired_at BIGINT NULL,
+  PRIMARY KEY (token)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sessions_username ON sessions (username);
+-- serves the periodic purge of expired sessions
+CREATE INDEX IF NOT EXISTS idx_sessions_expired_at ON sessions (expired_at);
+
+-- carries the live token of each user over from the old users columns, then drops them
+DO $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM information_schema.columns
+             WHERE table_schema = current_schema() AND table_name = 'users' AND column_name = 'token') THEN
+    INSERT INTO sessions (token, username, expired_at, created_at)
+    SELECT token, username, token_expired_at, (extract(epoch FROM now()) * 1000)::BIGINT
+    FROM users
+    WHERE token IS NOT NULL AND token_expired_at IS NOT NULL
+    ON CONFLICT (token) DO NOTHING;
+
+    ALTER TABLE users DROP COLUMN token;
+    ALTER TABLE users DROP COLUMN IF EXISTS token_expired_at;
+  END IF;
+END $$;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- postgres does not index foreign keys on its own; this one also serves cursor paging
+CREATE INDEX IF NOT EXISTS idx_contacts_username_first_name_id ON contacts (username, first_name, id);
+
+CREATE INDEX IF NOT EXISTS idx_contacts_first_name_trgm ON contacts USING gin (first_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_contacts_last_name_trgm ON contacts USING gin (last_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_contacts_email_trgm ON contacts USING gin (email gin_trgm_ops);
+
+-- phone search is a prefix match on the digits or on the reversed digits (suffix);
+-- pattern ops let LIKE 'x%' use the btree whatever the database collation
+DROP INDEX IF EXISTS idx_contacts_phone_trgm;
+CREATE INDEX IF NOT EXISTS idx_contacts_username_phone_digits
+  ON contacts (username, phone_digits varchar_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_contacts_username_phone_digits_reversed
+  ON contacts (username, phone_digits_reversed varchar_pattern_ops);
+
+-- exact lookups; (username, phone_digits) above also serves phone equality
+CREATE INDEX IF NOT EXISTS idx_contacts_username_email_normalized ON contacts (username, email_normalized);
+
+-- fuzzy search fallback matches whole Double Metaphone keys with LIKE '% KEY %'
+CREATE INDEX IF NOT EXISTS idx_contacts_first_name_phonetic_trgm ON contacts USING gin (first_name_phonetic gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_contacts_last_name_phonetic_trgm ON contacts USING gin (last_name_phonetic gin_trgm_ops);
+
+-- replaced by the per-name columns above, which partial updates can fill without reading the row
+DROP INDEX IF EXISTS idx_contacts_name_phonetic_trgm;
+ALTER TABLE contacts DROP COLUMN IF EXISTS name_phonetic;
@@ -6,10 +6,21 @@ CREATE TABLE users(
   username         VARCHAR(100) NOT NULL,
   password         VARCHAR(100) NOT NULL,
   name             VARCHAR(100) NOT NULL,
-  token            VARCHAR(100) NULL,
-  token_expired_at BIGINT,
-  PRIMARY KEY (username),
-  UNIQUE(token)
+  PRIMARY KEY (username)
+) ENGINE InnoDB;
+
+CREATE TABLE sessions(
+  token       VARCHAR(100) NOT NULL,
+  username    VARCHAR(100) NOT NULL,
+  expired_at  BIGINT NOT NULL,
+  created_at  BIGINT NOT NULL,
+  refresh_token_hash VARCHAR(64) NULL,
+  refresh_expired_at BIGINT NULL,
+  PRIMARY KEY (token),
+  UNIQUE (refresh_token_hash),
+  INDEX idx_sessions_username (username),
+  INDEX idx_sessions_expired_at (expired_at),
+  FOREIGN KEY fk_users_sessions (username) REFERENCES users (username)
 ) ENGINE InnoDB;
 
 CREATE TABLE contacts(
@@ -18,11 +29,28 @@ CREATE TABLE contacts(
   first_name  VARCHAR(100) NOT NULL,
   last_name   VARCHAR(100) NOT NULL,
   phone       VARCHAR(100) NULL,
+  phone_digits          VARCHAR(100) NULL,
+  phone_digits_reversed VARCHAR(100) NULL,
   email       VARCHAR(100) NULL,
+  email_normalized      VARCHAR(100) NULL,
+  first_name_phonetic   VARCHAR(255) NULL,
+  last_name_phonetic    VARCHAR(255) NULL,
+  version     BIGINT NOT NULL DEFAULT 0,
   PRIMARY KEY(id),
+  INDEX idx_contacts_username_first_name_id (username, first_name, id),
+  INDEX idx_contacts_username_phone_digits (username, phone_digits),
+  INDEX idx_contacts_username_phone_digits_reversed (username, phone_digits_reversed),
+  INDEX idx_contacts_username_email_normalized (username, email_normalized),
   FOREIGN KEY fk_users_contacts (username) REFERENCES users (username)
 ) ENGINE InnoDB;
 
+-- contacts per user, kept in step with contact writes so listings do not need count(*)
+CREATE TABLE contact_counters(
+  username    VARCHAR(100) NOT NULL,
+  total       BIGINT NOT NULL,
+  PRIMARY KEY (username)
+) ENGINE InnoDB;
+
 CREATE TABLE addresses(
   id          VARCHAR(100) NOT NULL,
   contact_id  VARCHAR(100) NOT NULL,
@@ -31,15 +59,21 @@ CREATE TABLE addresses(
   province    VARCHAR(100),
   country     VARCHAR(100) NOT NULL,
   postal_code VARCHAR(10),
+  version     BIGINT NOT NULL DEFAULT 0,
   PRIMARY KEY(id),
   FOREIGN KEY fk_contacts_addresses (contact_id) REFERENCES contacts(id)
 ) ENGINE InnoDB;
 
 -- Insert Users
-INSERT INTO users (username, password, name, token, token_expired_at) VALUES
-('john_doe', 'hashedpassword123', 'John Doe', 'token123', 1700000000),
-('jane_smith', 'hashedpassword456', 'Jane Smith', 'token456', 1700005000),
-('alex_k', 'hashedpassword789', 'Alex Kim', NULL, NULL);
+INSERT INTO users (username, password, name) VALUES
+('john_doe', 'hashedpassword123', 'John Doe'),
+('jane_smith', 'hashedpassword456', 'Jane Smith'),
+('alex_k', 'hashedpassword789', 'Alex Kim');
+
+-- Insert Sessions (linked to users)
+INSERT INTO sessions (token, username, expired_at, created_at) VALUES
+('token123', 'john_doe', 1700000000, 1690000000),
+('token456', 'jane_smith', 1700005000, 1690000000);
 
 -- Insert Contacts (linked to users)
 INSERT INTO contacts (id, username, first_name, last_name, phone, email) VALUES
@@ -53,4 +87,8 @@ INSERT INTO addresses (id, contact_id, street, city, province, country, postal_c
 ('a1', 'c1', '123 Basketball St', 'Chicago', 'Illinois', 'USA', '60601'),
 ('a2', 'c2', '45 Future Rd', 'Los Angeles', 'California', 'USA', '90001'),
 ('a3', 'c3', '100 Wayne Tower', 'Gotham', 'New Jersey', 'USA', '07001'),
-('a4', 'c4', '200 Daily Planet', 'Metropolis', 'New York', 'USA', '10001');
\ No newline at end of file
+('a4', 'c4', '200 Daily Planet', 'Metropolis', 'New York', 'USA', '10001');
+
+-- Backfill contact counters
+INSERT INTO contact_counters (username, total)
+SELECT u.username, (SELECT count(*) FROM contacts c WHERE c.username = u.username) FROM users u;
@@ -2,8 +2,10 @@ package com.learn.learn_spring_rest;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class LearnSpringRestApplication {
 
 	public static void main(String[] args) {
@@ -5,7 +5,9 @@ import org.springframework.web.bind.annotation.RestController;
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.AddressResponse;
 import com.learn.learn_spring_rest.model.CreateAddressRequest;
+import com.learn.learn_spring_rest.model.PatchAddressRequest;
 import com.learn.learn_spring_rest.model.UpdateAddressRequest;
+import com.learn.learn_spring_rest.model.VersionResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
 import com.learn.learn_spring_rest.service.AddressService;
 
@@ -13,12 +15,14 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 public class AddressController {
@@ -38,8 +42,16 @@ public class AddressController {
 
   @GetMapping(path = "/api/contacts/{contactId}/addresses/{addressId}", produces = MediaType.APPLICATION_JSON_VALUE)
   public WebResponse<AddressResponse> get(User user, @PathVariable("contactId") String contactId,
-      @PathVariable("addressId") String addressId) {
+      @PathVariable("addressId") String addressId, WebRequest webRequest) {
+    boolean revalidation = ETags.isRevalidation(webRequest);
+    if (revalidation && webRequest.checkNotModified(ETags.of(addressService.version(user, contactId, addressId)))) {
+      return null;
+    }
+
     AddressResponse response = addressService.get(user, contactId, addressId);
+    if (!revalidation) {
+      webRequest.checkNotModified(ETags.of(response.getVersion()));
+    }
 
     return WebResponse.<AddressResponse>builder().data(response).build();
   }
@@ -55,6 +67,17 @@ public class AddressController {
     return WebResponse.<AddressResponse>builder().data(addressResponse).build();
   }
 
+  @PatchMapping(path = "/api/contacts/{contactId}/addresses/{addressId}", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<VersionResponse> patch(User user, @RequestBody PatchAddressRequest request,
+      @PathVariable("contactId") String contactId, @PathVariable("addressId") String addressId) {
+
+    request.setContactId(contactId);
+    request.setAddressId(addressId);
+
+    VersionResponse response = addressService.patch(user, request);
+    return WebResponse.<VersionResponse>builder().data(response).build();
+  }
+
   @DeleteMapping(path = "/api/contacts/{contactId}/addresses/{addressId}", produces = MediaType.APPLICATION_JSON_VALUE)
   public WebResponse<String> remove(User user,
       @PathVariable("contactId") String contactId, @PathVariable("addressId") String addressId) {
@@ -64,10 +87,19 @@ public class AddressController {
   }
 
   @GetMapping(path = "/api/contacts/{contactId}/addresses", produces = MediaType.APPLICATION_JSON_VALUE)
-  public WebResponse<List<AddressResponse>> list(User user, @PathVariable("contactId") String contactId) {
-    List<AddressResponse> addressResponses = addressService.list(user, contactId);
-
-    return WebResponse.<List<AddressResponse>>builder().data(addressResponses).build();
+  public WebResponse<List<AddressResponse>> list(User user, @PathVariable("contactId") String contactId,
+      WebRequest webRequest) {
+    boolean revalidation = ETags.isRevalidation(webRequest);
+    if (revalidation && webRequest.checkNotModified(ETags.of(addressService.listVersion(user, contactId)))) {
+      return null;
+    }
+
+    AddressService.AddressList addressList = addressService.list(user, contactId);
+    if (!revalidation) {
+      webRequest.checkNotModified(ETags.of(addressList.contactVersion()));
+    }
+
+    return WebResponse.<List<AddressResponse>>builder().data(addressList.addresses()).build();
   }
 
 }
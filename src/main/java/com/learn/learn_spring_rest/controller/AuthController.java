@@ -3,10 +3,12 @@ package com.learn.learn_spring_rest.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.LoginUserRequest;
+import com.learn.learn_spring_rest.model.RefreshTokenRequest;
 import com.learn.learn_spring_rest.model.TokenResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
 import com.learn.learn_spring_rest.service.AuthService;
@@ -26,9 +28,16 @@ public class AuthController {
     return WebResponse.<TokenResponse>builder().data(tokenResponse).build();
   }
 
+  @PostMapping(path = "/api/auth/refresh", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<TokenResponse> refresh(@RequestBody RefreshTokenRequest request) {
+    TokenResponse tokenResponse = authService.refresh(request);
+
+    return WebResponse.<TokenResponse>builder().data(tokenResponse).build();
+  }
+
   @DeleteMapping(path = "/api/auth/logout", produces = MediaType.APPLICATION_JSON_VALUE)
-  public WebResponse<String> logout(User user) {
-    authService.logout(user);
+  public WebResponse<String> logout(User user, @RequestHeader("X-API-TOKEN") String token) {
+    authService.logout(user, token);
     return WebResponse.<String>builder().data("OK").build();
   }
 
@@ -1,34 +1,57 @@
 package com.learn.learn_spring_rest.controller;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.BulkContactRequest;
+import com.learn.learn_spring_rest.model.BulkContactResult;
 import com.learn.learn_spring_rest.model.ContactResponse;
 import com.learn.learn_spring_rest.model.CreateContactRequest;
+import com.learn.learn_spring_rest.model.CursorPage;
+import com.learn.learn_spring_rest.model.ImportContactResponse;
+import com.learn.learn_spring_rest.model.LookupContactRequest;
 import com.learn.learn_spring_rest.model.PagingResponse;
+import com.learn.learn_spring_rest.model.PatchContactRequest;
 import com.learn.learn_spring_rest.model.SearchContactRequest;
 import com.learn.learn_spring_rest.model.UpdateContactRequest;
+import com.learn.learn_spring_rest.model.VersionResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
+import com.learn.learn_spring_rest.service.ContactExportService;
+import com.learn.learn_spring_rest.service.ContactImportService;
 import com.learn.learn_spring_rest.service.ContactService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @RestController
 public class ContactController {
 
   @Autowired
   private ContactService contactService;
 
+  @Autowired
+  private ContactExportService contactExportService;
+
+  @Autowired
+  private ContactImportService contactImportService;
+
   @PostMapping(path = "/api/contacts", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
   public WebResponse<ContactResponse> create(User user, @RequestBody CreateContactRequest request) {
     ContactResponse contactResponse = contactService.create(user, request);
@@ -36,9 +59,38 @@ public class ContactController {
     return WebResponse.<ContactResponse>builder().data(contactResponse).build();
   }
 
+  @PostMapping(path = "/api/contacts/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<List<BulkContactResult>> bulk(User user, @RequestBody BulkContactRequest request) {
+    return WebResponse.<List<BulkContactResult>>builder()
+        .data(contactService.bulk(user, request))
+        .build();
+  }
+
+  // the body is read as it arrives instead of being bound to an object, see ContactImportService
+  @PostMapping(path = "/api/contacts/import", produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<ImportContactResponse> importContacts(User user, HttpServletRequest request)
+      throws IOException {
+    MediaType contentType = request.getContentType() == null ? null : MediaType.parseMediaType(request.getContentType());
+    ImportContactResponse response = contactImportService.importContacts(user, contentType, request.getInputStream());
+
+    return WebResponse.<ImportContactResponse>builder().data(response).build();
+  }
+
   @GetMapping(path = "/api/contacts/{contactId}", produces = MediaType.APPLICATION_JSON_VALUE)
-  public WebResponse<ContactResponse> get(User user, @PathVariable("contactId") String contactId) {
-    ContactResponse contactResponse = contactService.get(user, contactId);
+  public WebResponse<ContactResponse> get(User user, @PathVariable("contactId") String contactId,
+      @RequestParam(value = "expand", required = false) String expand, WebRequest webRequest) {
+    boolean addresses = contactService.expandsAddresses(expand);
+
+    // a revalidation is answered from the version alone, without loading the contact
+    boolean revalidation = ETags.isRevalidation(webRequest);
+    if (revalidation && webRequest.checkNotModified(ETags.of(contactService.version(user, contactId), addresses))) {
+      return null;
+    }
+
+    ContactResponse contactResponse = contactService.get(user, contactId, expand);
+    if (!revalidation) {
+      webRequest.checkNotModified(ETags.of(contactResponse.getVersion(), addresses));
+    }
     return WebResponse.<ContactResponse>builder().data(contactResponse).build();
   }
 
@@ -52,36 +104,130 @@ public class ContactController {
     return WebResponse.<ContactResponse>builder().data(contactResponse).build();
   }
 
+  @PatchMapping(path = "/api/contacts/{contactId}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<VersionResponse> patch(User user, @RequestBody PatchContactRequest request,
+      @PathVariable("contactId") String contactId) {
+    request.setId(contactId);
+
+    VersionResponse response = contactService.patch(user, request);
+
+    return WebResponse.<VersionResponse>builder().data(response).build();
+  }
+
   @DeleteMapping(path = "/api/contacts/{contactId}", produces = MediaType.APPLICATION_JSON_VALUE)
   public WebResponse<String> delete(User user, @PathVariable("contactId") String contactId) {
     contactService.delete(user, contactId);
     return WebResponse.<String>builder().data("OK").build();
   }
 
+  @DeleteMapping(path = "/api/contacts", produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<Long> deleteAll(User user,
+      @RequestParam(value = "name", required = false) String name,
+      @RequestParam(value = "email", required = false) String email,
+      @RequestParam(value = "phone", required = false) String phone) {
+    SearchContactRequest request = SearchContactRequest.builder()
+        .name(name)
+        .email(email)
+        .phone(phone)
+        .build();
+
+    return WebResponse.<Long>builder().data(contactService.deleteAll(user, request)).build();
+  }
+
   @GetMapping(path = "/api/contacts", produces = MediaType.APPLICATION_JSON_VALUE)
   public WebResponse<List<ContactResponse>> search(User user,
       @RequestParam(value = "name", required = false) String name,
       @RequestParam(value = "email", required = false) String email,
       @RequestParam(value = "phone", required = false) String phone,
       @RequestParam(value = "page", required = false, defaultValue = "0") Integer page,
-      @RequestParam(value = "size", required = false, defaultValue = "10") Integer size) {
+      @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "includeTotal", required = false, defaultValue = "true") Boolean includeTotal,
+      @RequestParam(value = "fuzzy", required = false, defaultValue = "false") Boolean fuzzy,
+      @RequestParam(value = "expand", required = false) String expand, WebRequest webRequest) {
     SearchContactRequest request = SearchContactRequest.builder()
         .page(page)
         .size(size)
         .name(name)
         .email(email)
         .phone(phone)
+        .cursor(cursor)
+        .includeTotal(includeTotal)
+        .fuzzy(fuzzy)
+        .expand(expand)
         .build();
 
-    Page<ContactResponse> contactResponse = contactService.search(user, request);
+    WebResponse<List<ContactResponse>> response;
+    if (cursor != null) {
+      CursorPage<ContactResponse> contactResponse = contactService.searchByCursor(user, request);
+
+      response = WebResponse.<List<ContactResponse>>builder()
+          .data(contactResponse.getContent())
+          .paging(PagingResponse.builder()
+              .size(size)
+              .nextCursor(contactResponse.getNextCursor())
+              .build())
+          .build();
+    } else if (!includeTotal) {
+      Slice<ContactResponse> contactResponse = contactService.searchSlice(user, request);
+
+      response = WebResponse.<List<ContactResponse>>builder()
+          .data(contactResponse.getContent())
+          .paging(PagingResponse.builder()
+              .currentPage(contactResponse.getNumber())
+              .size(contactResponse.getSize())
+              .hasNext(contactResponse.hasNext())
+              .build())
+          .build();
+    } else {
+      Page<ContactResponse> contactResponse = contactService.search(user, request);
+
+      response = WebResponse.<List<ContactResponse>>builder()
+          .data(contactResponse.getContent())
+          .paging(PagingResponse.builder()
+              .currentPage(contactResponse.getNumber())
+              .totalPage(contactResponse.getTotalPages())
+              .size(contactResponse.getSize())
+              .build())
+          .build();
+    }
+
+    // the tag is made from the page, so this saves the body but not the search above
+    if (webRequest.checkNotModified(ETags.of(response.getData(), response.getPaging()))) {
+      return null;
+    }
+    return response;
+  }
+
+  @GetMapping(path = "/api/contacts/lookup", produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<List<ContactResponse>> lookup(User user,
+      @RequestParam(value = "phone", required = false) String phone,
+      @RequestParam(value = "email", required = false) String email) {
+    LookupContactRequest request = LookupContactRequest.builder()
+        .phone(phone)
+        .email(email)
+        .build();
 
     return WebResponse.<List<ContactResponse>>builder()
-        .data(contactResponse.getContent())
-        .paging(PagingResponse.builder()
-            .currentPage(contactResponse.getNumber())
-            .totalPage(contactResponse.getTotalPages())
-            .size(contactResponse.getSize())
-            .build())
+        .data(contactService.lookup(user, request))
+        .build();
+  }
+
+  @GetMapping(path = "/api/contacts/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+  public WebResponse<List<String>> suggest(User user,
+      @RequestParam(value = "prefix", required = false) String prefix,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    return WebResponse.<List<String>>builder()
+        .data(contactService.suggest(user, prefix, limit))
         .build();
   }
+
+  @GetMapping(path = "/api/contacts/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> export(User user) {
+    StreamingResponseBody body = outputStream -> contactExportService.export(user, outputStream);
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(body);
+  }
 }
@@ -0,0 +1,49 @@
+package com.learn.learn_spring_rest.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import com.learn.learn_spring_rest.model.ContactResponse;
+import com.learn.learn_spring_rest.model.PagingResponse;
+
+/**
+ * Strong entity tags for the contact and address endpoints, checked with
+ * {@code WebRequest.checkNotModified}. A single contact or address is tagged
+ * with its version, which is read on its own only for a request that sends
+ * {@code If-None-Match}, so a revalidation skips loading it and a plain GET takes
+ * the version from what it loaded. A contact with its addresses expanded is a
+ * different representation and gets a different tag.
+ * A page of contacts is tagged with a digest of the ids and versions on it and
+ * its paging. That tag needs the page, so a revalidation of a search still runs
+ * the search; an unchanged page only saves the serialization and the transfer.
+ */
+final class ETags {
+
+  private ETags() {
+  }
+
+  static boolean isRevalidation(WebRequest request) {
+    return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+  }
+
+  static String of(long version) {
+    return Long.toString(version);
+  }
+
+  static String of(long version, boolean addresses) {
+    return addresses ? version + "-addresses" : of(version);
+  }
+
+  static String of(List<ContactResponse> contacts, PagingResponse paging) {
+    StringBuilder builder = new StringBuilder();
+    for (ContactResponse contact : contacts) {
+      builder.append(contact.getId()).append(':').append(contact.getVersion()).append(',');
+    }
+    builder.append(paging);
+    return DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
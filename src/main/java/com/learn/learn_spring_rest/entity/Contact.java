@@ -2,13 +2,20 @@ package com.learn.learn_spring_rest.entity;
 
 import java.util.List;
 
+import com.learn.learn_spring_rest.search.Emails;
+import com.learn.learn_spring_rest.search.Names;
+import com.learn.learn_spring_rest.search.PhoneNumbers;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -32,12 +39,44 @@ public class Contact {
 
   private String phone;
 
+  // digits of phone, kept in step on every write for prefix and suffix search
+  @Column(name = "phone_digits")
+  private String phoneDigits;
+
+  @Column(name = "phone_digits_reversed")
+  private String phoneDigitsReversed;
+
   private String email;
 
+  @Column(name = "email_normalized")
+  private String emailNormalized;
+
+  // Double Metaphone keys of the name words, for fuzzy search that cannot use the in-memory index;
+  // one column per name so a partial update can fill it without reading the other name
+  @Column(name = "first_name_phonetic")
+  private String firstNamePhonetic;
+
+  @Column(name = "last_name_phonetic")
+  private String lastNamePhonetic;
+
   @ManyToOne
   @JoinColumn(name = "username", referencedColumnName = "username")
   private User user;
 
   @OneToMany(mappedBy = "contact")
   private List<Address> addresses;
+
+  // also incremented on every write to an address of the contact, see AddressService
+  @Version
+  private Long version;
+
+  @PrePersist
+  @PreUpdate
+  void normalize() {
+    phoneDigits = PhoneNumbers.digits(phone);
+    phoneDigitsReversed = PhoneNumbers.reversed(phoneDigits);
+    emailNormalized = Emails.normalize(email);
+    firstNamePhonetic = Names.phonetic(firstName);
+    lastNamePhonetic = Names.phonetic(lastName);
+  }
 }
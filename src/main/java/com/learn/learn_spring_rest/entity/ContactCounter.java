@@ -0,0 +1,22 @@
+package com.learn.learn_spring_rest.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "contact_counters")
+public class ContactCounter {
+  @Id
+  private String username;
+
+  private Long total;
+}
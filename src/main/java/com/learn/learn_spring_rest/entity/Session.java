@@ -0,0 +1,63 @@
+package com.learn.learn_spring_rest.entity;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "sessions")
+public class Session implements Persistable<String> {
+
+  @Id
+  private String token;
+
+  @ManyToOne
+  @JoinColumn(name = "username", referencedColumnName = "username")
+  private User user;
+
+  @Column(name = "expired_at")
+  private Long expiredAt;
+
+  @Column(name = "created_at")
+  private Long createdAt;
+
+  @Column(name = "refresh_token_hash")
+  private String refreshTokenHash;
+
+  @Column(name = "refresh_expired_at")
+  private Long refreshExpiredAt;
+
+  // tokens are generated by us, so a new session is always an insert and never needs a merge select
+  @Transient
+  private boolean isNew = true;
+
+  @Override
+  public String getId() {
+    return token;
+  }
+
+  @Override
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    isNew = false;
+  }
+}
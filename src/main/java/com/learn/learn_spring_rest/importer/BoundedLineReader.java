@@ -0,0 +1,47 @@
+package com.learn.learn_spring_rest.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Line reader that refuses lines longer than a limit instead of buffering a
+ * whole malformed file. Accepts \n, \r\n and \r line ends.
+ */
+class BoundedLineReader {
+
+  private final Reader reader;
+
+  private final int maxLength;
+
+  private final StringBuilder line = new StringBuilder();
+
+  private boolean skipLineFeed;
+
+  BoundedLineReader(Reader reader, int maxLength) {
+    this.reader = reader;
+    this.maxLength = maxLength;
+  }
+
+  // null at the end of the input
+  String readLine() throws IOException {
+    line.setLength(0);
+    int c = reader.read();
+    if (skipLineFeed && c == '\n') {
+      c = reader.read();
+    }
+    skipLineFeed = false;
+    if (c == -1) {
+      return null;
+    }
+
+    while (c != -1 && c != '\n' && c != '\r') {
+      if (line.length() == maxLength) {
+        throw new ContactRecordException("Line is longer than " + maxLength + " characters", true);
+      }
+      line.append((char) c);
+      c = reader.read();
+    }
+    skipLineFeed = c == '\r';
+    return line.toString();
+  }
+}
@@ -0,0 +1,15 @@
+package com.learn.learn_spring_rest.importer;
+
+import lombok.Getter;
+
+@Getter
+public class ContactRecordException extends RuntimeException {
+
+  // the input cannot be read any further, as opposed to one bad record
+  private final boolean fatal;
+
+  public ContactRecordException(String message, boolean fatal) {
+    super(message);
+    this.fatal = fatal;
+  }
+}
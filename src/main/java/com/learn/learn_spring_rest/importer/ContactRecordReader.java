@@ -0,0 +1,22 @@
+package com.learn.learn_spring_rest.importer;
+
+import java.io.IOException;
+
+import com.learn.learn_spring_rest.model.CreateContactRequest;
+
+/**
+ * Reads contacts one record at a time from an import file, never holding more
+ * than the current record in memory.
+ */
+public interface ContactRecordReader {
+
+  /**
+   * The next record, or null at the end of the input. A record that cannot be
+   * read throws {@link ContactRecordException}; unless it is fatal, the reader
+   * has already moved past it and the next call continues with the record after.
+   */
+  CreateContactRequest next() throws IOException;
+
+  // number of the record last returned or rejected, starting at 1
+  long record();
+}
@@ -0,0 +1,55 @@
+package com.learn.learn_spring_rest.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Picks the reader for the content type of an import request.
+ */
+public final class ContactRecordReaders {
+
+  public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+  public static final MediaType TEXT_VCARD = MediaType.valueOf("text/vcard");
+
+  public static final MediaType TEXT_X_VCARD = MediaType.valueOf("text/x-vcard");
+
+  // far beyond any valid record, only there so a broken file cannot fill the heap
+  private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  private ContactRecordReaders() {
+  }
+
+  public static boolean isSupported(MediaType contentType) {
+    return TEXT_CSV.includes(contentType) || TEXT_VCARD.includes(contentType)
+        || TEXT_X_VCARD.includes(contentType) || MediaType.APPLICATION_NDJSON.includes(contentType);
+  }
+
+  /**
+   * Opens a reader over the stream, decoded with the charset of the content
+   * type or UTF-8. The caller checks {@link #isSupported} first.
+   */
+  public static ContactRecordReader open(MediaType contentType, InputStream inputStream, ObjectMapper objectMapper)
+      throws IOException {
+    Charset charset = Objects.requireNonNullElse(contentType.getCharset(), StandardCharsets.UTF_8);
+    Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset), 64 * 1024);
+
+    if (TEXT_CSV.includes(contentType)) {
+      return new CsvContactReader(reader, MAX_RECORD_LENGTH);
+    }
+    if (MediaType.APPLICATION_NDJSON.includes(contentType)) {
+      return new NdjsonContactReader(reader, objectMapper, MAX_RECORD_LENGTH);
+    }
+    return new VCardContactReader(reader, MAX_RECORD_LENGTH);
+  }
+}
@@ -0,0 +1,149 @@
+package com.learn.learn_spring_rest.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.learn.learn_spring_rest.model.CreateContactRequest;
+
+/**
+ * RFC 4180 CSV with a header row naming the columns: firstName, lastName,
+ * email and phone, in any order and case, with or without underscores
+ * (first_name). Other columns are ignored. Quoted fields may hold commas,
+ * doubled quotes and line breaks; empty fields are read as missing.
+ */
+class CsvContactReader implements ContactRecordReader {
+
+  private static final String[] COLUMNS = { "firstname", "lastname", "email", "phone" };
+
+  private final Reader reader;
+
+  private final int maxRecordLength;
+
+  // position of each of COLUMNS in a record, -1 when the file does not have it
+  private final int[] positions = { -1, -1, -1, -1 };
+
+  private final List<String> fields = new ArrayList<>();
+
+  private final StringBuilder field = new StringBuilder();
+
+  private int lookahead = -2;
+
+  private long record;
+
+  CsvContactReader(Reader reader, int maxRecordLength) throws IOException {
+    this.reader = reader;
+    this.maxRecordLength = maxRecordLength;
+
+    if (!readRecord()) {
+      return;
+    }
+
+    // a byte order mark left by spreadsheet exports sticks to the first column name
+    for (int i = 0; i < fields.size(); i++) {
+      String name = fields.get(i).replace("\uFEFF", "").replace("_", "").trim().toLowerCase(Locale.ROOT);
+      for (int column = 0; column < COLUMNS.length; column++) {
+        if (COLUMNS[column].equals(name) && positions[column] < 0) {
+          positions[column] = i;
+        }
+      }
+    }
+    if (positions[0] < 0) {
+      throw new ContactRecordException("CSV header must have a firstName column", true);
+    }
+  }
+
+  @Override
+  public CreateContactRequest next() throws IOException {
+    do {
+      if (!readRecord()) {
+        return null;
+      }
+    } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+    record++;
+    return CreateContactRequest.builder()
+        .firstName(field(0))
+        .lastName(field(1))
+        .email(field(2))
+        .phone(field(3))
+        .build();
+  }
+
+  @Override
+  public long record() {
+    return record;
+  }
+
+  private String field(int column) {
+    int position = positions[column];
+    if (position < 0 || position >= fields.size() || fields.get(position).isEmpty()) {
+      return null;
+    }
+    return fields.get(position);
+  }
+
+  // reads the next record into fields, false at the end of the input
+  private boolean readRecord() throws IOException {
+    fields.clear();
+    field.setLength(0);
+
+    int c = read();
+    if (c == -1) {
+      return false;
+    }
+
+    boolean quoted = false;
+    int length = 0;
+    while (true) {
+      if (++length > maxRecordLength) {
+        throw new ContactRecordException("Record is longer than " + maxRecordLength + " characters", true);
+      }
+
+      if (quoted) {
+        if (c == -1) {
+          throw new ContactRecordException("Quoted field is not closed", true);
+        }
+        if (c == '"') {
+          int next = read();
+          if (next != '"') {
+            quoted = false;
+            c = next;
+            continue;
+          }
+        }
+        field.append((char) c);
+      } else if (c == '"' && field.length() == 0) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n' || c == -1) {
+        break;
+      } else if (c == '\r') {
+        int next = read();
+        if (next != '\n') {
+          lookahead = next;
+        }
+        break;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+
+    fields.add(field.toString());
+    return true;
+  }
+
+  private int read() throws IOException {
+    if (lookahead != -2) {
+      int c = lookahead;
+      lookahead = -2;
+      return c;
+    }
+    return reader.read();
+  }
+}
@@ -0,0 +1,56 @@
+package com.learn.learn_spring_rest.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.learn.learn_spring_rest.model.CreateContactRequest;
+
+/**
+ * One JSON object per line with the fields of {@link CreateContactRequest}.
+ * Blank lines are skipped.
+ */
+class NdjsonContactReader implements ContactRecordReader {
+
+  private final BoundedLineReader lines;
+
+  private final ObjectReader objectReader;
+
+  private long record;
+
+  NdjsonContactReader(Reader reader, ObjectMapper objectMapper, int maxLineLength) {
+    this.lines = new BoundedLineReader(reader, maxLineLength);
+    this.objectReader = objectMapper.readerFor(CreateContactRequest.class);
+  }
+
+  @Override
+  public CreateContactRequest next() throws IOException {
+    String line;
+    do {
+      line = lines.readLine();
+      if (line == null) {
+        return null;
+      }
+    } while (line.isBlank());
+
+    record++;
+    CreateContactRequest request;
+    try {
+      request = objectReader.readValue(line);
+    } catch (JsonProcessingException exception) {
+      throw new ContactRecordException("Invalid JSON: " + exception.getOriginalMessage(), false);
+    }
+
+    if (request == null) {
+      throw new ContactRecordException("Record is not a JSON object", false);
+    }
+    return request;
+  }
+
+  @Override
+  public long record() {
+    return record;
+  }
+}
@@ -0,0 +1,169 @@
+package com.learn.learn_spring_rest.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.learn.learn_spring_rest.model.CreateContactRequest;
+
+/**
+ * vCard 3.0 / 4.0 files with any number of BEGIN:VCARD ... END:VCARD blocks.
+ * The name comes from N (given and family name) or, without it, from FN as
+ * the first name; the first EMAIL and TEL are used. Folded lines are joined
+ * and other properties are ignored.
+ */
+class VCardContactReader implements ContactRecordReader {
+
+  private final BoundedLineReader lines;
+
+  // next physical line, read ahead to find folded continuation lines
+  private String pending;
+
+  private long record;
+
+  VCardContactReader(Reader reader, int maxLineLength) throws IOException {
+    this.lines = new BoundedLineReader(reader, maxLineLength);
+    this.pending = lines.readLine();
+  }
+
+  @Override
+  public CreateContactRequest next() throws IOException {
+    String line;
+    do {
+      line = readLogicalLine();
+      if (line == null) {
+        return null;
+      }
+    } while (!line.trim().equalsIgnoreCase("BEGIN:VCARD"));
+
+    record++;
+    String formattedName = null;
+    String givenName = null;
+    String familyName = null;
+    String email = null;
+    String phone = null;
+    while (true) {
+      line = readLogicalLine();
+      if (line == null) {
+        throw new ContactRecordException("vCard is missing END:VCARD", true);
+      }
+
+      int colon = line.indexOf(':');
+      if (colon < 0) {
+        continue;
+      }
+
+      String name = propertyName(line.substring(0, colon));
+      String value = line.substring(colon + 1);
+      switch (name) {
+        case "END" -> {
+          return CreateContactRequest.builder()
+              .firstName(isBlank(givenName) ? formattedName : givenName)
+              .lastName(isBlank(givenName) ? null : familyName)
+              .email(email)
+              .phone(phone)
+              .build();
+        }
+        case "FN" -> formattedName = blankToNull(unescape(value));
+        case "N" -> {
+          List<String> parts = split(value);
+          familyName = parts.size() > 0 ? blankToNull(parts.get(0)) : null;
+          givenName = parts.size() > 1 ? blankToNull(parts.get(1)) : null;
+        }
+        case "EMAIL" -> email = email == null ? blankToNull(unescape(value)) : email;
+        case "TEL" -> phone = phone == null ? blankToNull(telephone(value)) : phone;
+        default -> {
+        }
+      }
+    }
+  }
+
+  @Override
+  public long record() {
+    return record;
+  }
+
+  // a line starting with a space or tab continues the previous one
+  private String readLogicalLine() throws IOException {
+    if (pending == null) {
+      return null;
+    }
+
+    String line = pending;
+    pending = lines.readLine();
+    if (pending == null || pending.isEmpty() || (pending.charAt(0) != ' ' && pending.charAt(0) != '\t')) {
+      return line;
+    }
+
+    StringBuilder folded = new StringBuilder(line);
+    while (pending != null && !pending.isEmpty() && (pending.charAt(0) == ' ' || pending.charAt(0) == '\t')) {
+      // long values we do not keep (PHOTO) are cut instead of buffered
+      if (folded.length() < 4096) {
+        folded.append(pending, 1, pending.length());
+      }
+      pending = lines.readLine();
+    }
+    return folded.toString();
+  }
+
+  // "item1.EMAIL;TYPE=work" is EMAIL
+  private static String propertyName(String nameAndParameters) {
+    int semicolon = nameAndParameters.indexOf(';');
+    String name = semicolon < 0 ? nameAndParameters : nameAndParameters.substring(0, semicolon);
+    int dot = name.lastIndexOf('.');
+    return name.substring(dot + 1).trim().toUpperCase(Locale.ROOT);
+  }
+
+  // vCard 4.0 may write TEL as a uri
+  private static String telephone(String value) {
+    String phone = unescape(value);
+    return phone.regionMatches(true, 0, "tel:", 0, 4) ? phone.substring(4) : phone;
+  }
+
+  // components of a structured value such as N, split on unescaped semicolons
+  private static List<String> split(String value) {
+    List<String> parts = new ArrayList<>();
+    StringBuilder part = new StringBuilder();
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        part.append(c).append(value.charAt(++i));
+      } else if (c == ';') {
+        parts.add(unescape(part.toString()));
+        part.setLength(0);
+      } else {
+        part.append(c);
+      }
+    }
+    parts.add(unescape(part.toString()));
+    return parts;
+  }
+
+  private static String unescape(String value) {
+    if (value.indexOf('\\') < 0) {
+      return value.trim();
+    }
+
+    StringBuilder text = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        char next = value.charAt(++i);
+        text.append(next == 'n' || next == 'N' ? '\n' : next);
+      } else {
+        text.append(c);
+      }
+    }
+    return text.toString().trim();
+  }
+
+  private static String blankToNull(String value) {
+    return isBlank(value) ? null : value;
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.isBlank();
+  }
+}
@@ -0,0 +1,22 @@
+package com.learn.learn_spring_rest.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkContactRequest {
+
+  private List<CreateContactRequest> create;
+
+  // each item carries the id of the contact to update
+  private List<UpdateContactRequest> update;
+
+  private List<String> delete;
+}
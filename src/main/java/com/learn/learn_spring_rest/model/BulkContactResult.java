@@ -0,0 +1,29 @@
+package com.learn.learn_spring_rest.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkContactResult {
+
+  // create, update or delete
+  private String operation;
+
+  // position of the item in its list of the request
+  private Integer index;
+
+  private String id;
+
+  // http status the item would have had as a single request
+  private Integer status;
+
+  private String errors;
+}
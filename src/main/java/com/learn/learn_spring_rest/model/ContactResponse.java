@@ -1,5 +1,9 @@
 package com.learn.learn_spring_rest.model;
 
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,7 +12,7 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class ContactResponse {
 
   private String id;
@@ -20,4 +24,10 @@ public class ContactResponse {
   private String email;
 
   private String phone;
+
+  private Long version;
+
+  // only filled where addresses are loaded with the contact, such as the export and expand=addresses
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private List<AddressResponse> addresses;
 }
@@ -0,0 +1,19 @@
+package com.learn.learn_spring_rest.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPage<T> {
+
+  private List<T> content;
+
+  private String nextCursor;
+}
@@ -0,0 +1,18 @@
+package com.learn.learn_spring_rest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportContactError {
+
+  // position of the record in the file, starting at 1 (the CSV header is not a record)
+  private long record;
+
+  private String errors;
+}
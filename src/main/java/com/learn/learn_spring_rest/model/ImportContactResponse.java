@@ -0,0 +1,22 @@
+package com.learn.learn_spring_rest.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportContactResponse {
+
+  private long imported;
+
+  private long failed;
+
+  // the first failed records only, up to app.contact.import.max-errors
+  private List<ImportContactError> errors;
+}
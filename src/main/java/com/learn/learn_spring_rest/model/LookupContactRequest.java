@@ -0,0 +1,20 @@
+package com.learn.learn_spring_rest.model;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LookupContactRequest {
+
+  @Size(max = 100)
+  private String phone;
+
+  @Size(max = 100)
+  private String email;
+}
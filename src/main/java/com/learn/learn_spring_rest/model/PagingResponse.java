@@ -1,5 +1,7 @@
 package com.learn.learn_spring_rest.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,8 +11,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PagingResponse {
   private Integer currentPage;
   private Integer totalPage;
   private Integer size;
+  private String nextCursor;
+  private Boolean hasNext;
 }
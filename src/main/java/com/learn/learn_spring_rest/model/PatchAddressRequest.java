@@ -0,0 +1,78 @@
+package com.learn.learn_spring_rest.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Data
+@NoArgsConstructor
+public class PatchAddressRequest {
+
+  @JsonIgnore
+  @NotBlank
+  private String contactId;
+
+  @JsonIgnore
+  @NotBlank
+  private String addressId;
+
+  // the version the client last read, the update only applies while it is still the current one
+  @NotNull
+  private Long version;
+
+  @Size(max = 200)
+  private String street;
+
+  @Size(max = 100)
+  private String city;
+
+  @Size(max = 100)
+  private String province;
+
+  @Size(max = 100)
+  @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank")
+  private String country;
+
+  @Size(max = 10)
+  private String postalCode;
+
+  // the fields present in the body: one sent as null is cleared, one left out is not changed
+  @JsonIgnore
+  @Setter(AccessLevel.NONE)
+  private Set<String> fields = new HashSet<>();
+
+  public void setStreet(String street) {
+    this.street = street;
+    fields.add("street");
+  }
+
+  public void setCity(String city) {
+    this.city = city;
+    fields.add("city");
+  }
+
+  public void setProvince(String province) {
+    this.province = province;
+    fields.add("province");
+  }
+
+  public void setCountry(String country) {
+    this.country = country;
+    fields.add("country");
+  }
+
+  public void setPostalCode(String postalCode) {
+    this.postalCode = postalCode;
+    fields.add("postalCode");
+  }
+}
@@ -0,0 +1,68 @@
+package com.learn.learn_spring_rest.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Data
+@NoArgsConstructor
+public class PatchContactRequest {
+
+  @JsonIgnore
+  @NotBlank
+  private String id;
+
+  // the version the client last read, the update only applies while it is still the current one
+  @NotNull
+  private Long version;
+
+  @Size(max = 100)
+  @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank")
+  private String firstName;
+
+  @Size(max = 100)
+  private String lastName;
+
+  @Size(max = 100)
+  @Email
+  private String email;
+
+  @Size(max = 100)
+  private String phone;
+
+  // the fields present in the body: one sent as null is cleared, one left out is not changed
+  @JsonIgnore
+  @Setter(AccessLevel.NONE)
+  private Set<String> fields = new HashSet<>();
+
+  public void setFirstName(String firstName) {
+    this.firstName = firstName;
+    fields.add("firstName");
+  }
+
+  public void setLastName(String lastName) {
+    this.lastName = lastName;
+    fields.add("lastName");
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+    fields.add("email");
+  }
+
+  public void setPhone(String phone) {
+    this.phone = phone;
+    fields.add("phone");
+  }
+}
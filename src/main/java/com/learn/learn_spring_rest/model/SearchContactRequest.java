@@ -18,6 +18,14 @@ public class SearchContactRequest {
 
   private String phone;
 
+  private String cursor;
+
+  private Boolean includeTotal;
+
+  private Boolean fuzzy;
+
+  private String expand;
+
   @NotNull
   private Integer page;
 
@@ -13,4 +13,8 @@ public class TokenResponse {
   private String token;
 
   private Long expiredAt;
+
+  private String refreshToken;
+
+  private Long refreshExpiredAt;
 }
\ No newline at end of file
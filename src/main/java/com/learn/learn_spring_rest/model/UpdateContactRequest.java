@@ -1,6 +1,6 @@
 package com.learn.learn_spring_rest.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -16,7 +16,8 @@ import lombok.NoArgsConstructor;
 @Builder
 public class UpdateContactRequest {
 
-  @JsonIgnore
+  // taken from the path on a single update, read from the body only by the bulk endpoint
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
   @NotBlank
   private String id;
 
@@ -0,0 +1,17 @@
+package com.learn.learn_spring_rest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class VersionResponse {
+
+  private String id;
+
+  private Long version;
+}
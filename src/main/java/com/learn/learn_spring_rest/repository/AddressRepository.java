@@ -1,19 +1,33 @@
 package com.learn.learn_spring_rest.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.learn.learn_spring_rest.entity.Address;
 import com.learn.learn_spring_rest.entity.Contact;
 
 @Repository
-public interface AddressRepository extends JpaRepository<Address, String> {
+public interface AddressRepository extends JpaRepository<Address, String>, AddressRepositoryCustom {
 
   Optional<Address> findFirstByContactAndId(Contact contact, String id);
 
   List<Address> findAllByContact(Contact contact);
 
+  @Query("select a.version from Address a where a.contact.user.username = :username"
+      + " and a.contact.id = :contactId and a.id = :id")
+  Optional<Long> findVersion(@Param("username") String username, @Param("contactId") String contactId,
+      @Param("id") String id);
+
+  // scalar rows (contact id, id, street, city, province, country, postal code, version), so the eager
+  // contact of each address is not loaded again for a page of contacts that is already known
+  @Query("select a.contact.id, a.id, a.street, a.city, a.province, a.country, a.postalCode, a.version"
+      + " from Address a where a.contact.id in :contactIds")
+  List<Object[]> findRowsByContactIdIn(@Param("contactIds") Collection<String> contactIds);
+
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.learn.learn_spring_rest.repository;
+
+import java.util.Map;
+
+public interface AddressRepositoryCustom {
+
+  /**
+   * Sets the changed fields (street, city, province, country, postalCode; null clears one) in a
+   * single UPDATE that also increments the version, without loading the address. Returns 0 when
+   * the address does not exist on the contact or is not at that version.
+   */
+  int patch(String contactId, String id, long version, Map<String, String> changes);
+}
@@ -0,0 +1,56 @@
+package com.learn.learn_spring_rest.repository;
+
+import java.util.Map;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+/**
+ * Address patches run on one of a fixed set of JPQL updates, picked by which
+ * fields change, the same way contact search picks its queries.
+ */
+public class AddressRepositoryImpl implements AddressRepositoryCustom {
+
+  // fields a patch can change, bit i of a patch variant is set when PATCH_FIELDS[i] changes
+  private static final String[] PATCH_FIELDS = { "street", "city", "province", "country", "postalCode" };
+
+  private static final String[] PATCH = new String[1 << PATCH_FIELDS.length];
+
+  static {
+    for (int variant = 1; variant < PATCH.length; variant++) {
+      StringBuilder set = new StringBuilder("update Address a set ");
+      for (int i = 0; i < PATCH_FIELDS.length; i++) {
+        if ((variant & 1 << i) != 0) {
+          set.append("a.").append(PATCH_FIELDS[i]).append(" = :").append(PATCH_FIELDS[i]).append(", ");
+        }
+      }
+      PATCH[variant] = set.append("a.version = a.version + 1")
+          .append(" where a.id = :id and a.contact.id = :contactId and a.version = :version")
+          .toString();
+    }
+  }
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  @Transactional
+  public int patch(String contactId, String id, long version, Map<String, String> changes) {
+    int variant = 0;
+    for (int i = 0; i < PATCH_FIELDS.length; i++) {
+      if (changes.containsKey(PATCH_FIELDS[i])) {
+        variant |= 1 << i;
+      }
+    }
+
+    Query query = entityManager.createQuery(PATCH[variant])
+        .setParameter("id", id)
+        .setParameter("contactId", contactId)
+        .setParameter("version", version);
+    changes.forEach(query::setParameter);
+    return query.executeUpdate();
+  }
+}
@@ -0,0 +1,10 @@
+package com.learn.learn_spring_rest.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.learn.learn_spring_rest.entity.ContactCounter;
+
+@Repository
+public interface ContactCounterRepository extends JpaRepository<ContactCounter, String>, ContactCounterRepositoryCustom {
+}
@@ -0,0 +1,11 @@
+package com.learn.learn_spring_rest.repository;
+
+public interface ContactCounterRepositoryCustom {
+
+  /**
+   * Adds delta to the user's counter with one atomic update. A missing row is seeded from a count
+   * of the user's contacts instead, which inside the writing transaction already reflects the
+   * rows being written, so the delta is not added on top of it.
+   */
+  void add(String username, long delta);
+}
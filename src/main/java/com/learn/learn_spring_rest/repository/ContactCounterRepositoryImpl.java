@@ -0,0 +1,67 @@
+package com.learn.learn_spring_rest.repository;
+
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.learn.learn_spring_rest.entity.ContactCounter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Counter updates are native, neither JPQL nor the entity can express an insert
+ * that turns into an update on conflict. Postgres and MySQL spell it differently.
+ * The upsert with its count is only the fallback for a user without a row yet.
+ */
+public class ContactCounterRepositoryImpl implements ContactCounterRepositoryCustom {
+
+  private static final String UPDATE = "UPDATE contact_counters SET total = total + :delta WHERE username = :username";
+
+  private static final String SEED = "INSERT INTO contact_counters (username, total)"
+      + " SELECT :username, count(*) FROM contacts WHERE username = :username";
+
+  private static final String UPSERT_POSTGRES = SEED
+      + " ON CONFLICT (username) DO UPDATE SET total = contact_counters.total + :delta";
+
+  private static final String UPSERT_MYSQL = SEED
+      + " ON DUPLICATE KEY UPDATE total = total + :delta";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private volatile String upsert;
+
+  @Override
+  @Transactional
+  public void add(String username, long delta) {
+    // only touches the counter table, so pending contact inserts do not need to be flushed for it
+    int updated = entityManager.createNativeQuery(UPDATE)
+        .unwrap(NativeQuery.class)
+        .addSynchronizedEntityClass(ContactCounter.class)
+        .setParameter("username", username)
+        .setParameter("delta", delta)
+        .executeUpdate();
+    if (updated > 0) {
+      return;
+    }
+
+    // the seed counts rows, so contacts saved earlier in this transaction have to be written first;
+    // a row another transaction seeded in the meantime still gets the delta through the conflict clause
+    entityManager.flush();
+    entityManager.createNativeQuery(upsert())
+        .setParameter("username", username)
+        .setParameter("delta", delta)
+        .executeUpdate();
+  }
+
+  private String upsert() {
+    if (upsert == null) {
+      boolean postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+          .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+      upsert = postgres ? UPSERT_POSTGRES : UPSERT_MYSQL;
+    }
+    return upsert;
+  }
+}
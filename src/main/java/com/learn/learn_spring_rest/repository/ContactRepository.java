@@ -1,16 +1,76 @@
 package com.learn.learn_spring_rest.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.learn.learn_spring_rest.entity.Contact;
 import com.learn.learn_spring_rest.entity.User;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
-public interface ContactRepository extends JpaRepository<Contact, String>, JpaSpecificationExecutor<Contact> {
+public interface ContactRepository
+    extends JpaRepository<Contact, String>, JpaSpecificationExecutor<Contact>, ContactRepositoryCustom {
   Optional<Contact> findFirstByUserAndId(User user, String id);
 
+  // the contact version is bumped right away (select for update, then update of the version), so
+  // address writes on one contact are serialized and the new version is known before commit
+  @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+  Optional<Contact> findLockedByUserAndId(User user, String id);
+
+  // for an address patch, which changes the contact version without loading the contact
+  @Modifying
+  @Query("update Contact c set c.version = c.version + 1 where c.user.username = :username and c.id = :id")
+  int incrementVersion(@Param("username") String username, @Param("id") String id);
+
+  @Query("select c.version from Contact c where c.user.username = :username and c.id = :id")
+  Optional<Long> findVersion(@Param("username") String username, @Param("id") String id);
+
+  // one query for the contact and its addresses
+  @Query("select c from Contact c left join fetch c.addresses where c.user.username = :username and c.id = :id")
+  Optional<Contact> findWithAddresses(@Param("username") String username, @Param("id") String id);
+
+  List<Contact> findAllByUser(User user);
+
+  List<Contact> findAllByUserAndIdIn(User user, Collection<String> ids);
+
+  @Query("select c.id from Contact c where c.user.username = :username and c.id in :ids")
+  List<String> findIds(@Param("username") String username, @Param("ids") Collection<String> ids);
+
+  // exact match on the normalized columns, a null value matches nothing
+  @Query("select c from Contact c where c.user.username = :username"
+      + " and (c.phoneDigits = :phoneDigits or c.emailNormalized = :email)")
+  List<Contact> lookup(@Param("username") String username, @Param("phoneDigits") String phoneDigits,
+      @Param("email") String email);
+
+  // candidates for fuzzy search when the in-memory index is not available: a name substring or a
+  // phonetic key of one query word, ranked afterwards; pure typo matches are only found by the index.
+  // ilike on the bare columns, which the pg_trgm indexes serve and lower(column) would not.
+  // Ordered so that a capped candidate list is the same subset on every call
+  @Query("select c from Contact c where c.user.username = :username"
+      + " and (c.firstName ilike :name escape '\\' or c.lastName ilike :name escape '\\'"
+      + " or c.firstNamePhonetic like :primaryKey or c.firstNamePhonetic like :alternateKey"
+      + " or c.lastNamePhonetic like :primaryKey or c.lastNamePhonetic like :alternateKey)"
+      + " order by c.firstName, c.id")
+  List<Contact> findFuzzyCandidates(@Param("username") String username, @Param("name") String name,
+      @Param("primaryKey") String primaryKey, @Param("alternateKey") String alternateKey, Pageable pageable);
+
+  // fallback for suggestions when the in-memory index is not available, prefix is lower case,
+  // escaped with LikePatterns and with a trailing %
+  @Query("select c.id from Contact c where c.user.username = :username"
+      + " and (lower(c.firstName) like :prefix escape '\\' or lower(c.lastName) like :prefix escape '\\'"
+      + " or lower(concat(c.firstName, ' ', c.lastName)) like :prefix escape '\\')"
+      + " order by c.firstName, c.id")
+  List<String> suggest(@Param("username") String username, @Param("prefix") String prefix, Pageable pageable);
+
 }
@@ -0,0 +1,46 @@
+package com.learn.learn_spring_rest.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import com.learn.learn_spring_rest.entity.Contact;
+
+public interface ContactRepositoryCustom {
+
+  Page<Contact> search(String username, ContactSearchFilter filter, Pageable pageable);
+
+  // no count query, fetches one extra row to know whether there is a next page
+  Slice<Contact> searchSlice(String username, ContactSearchFilter filter, Pageable pageable);
+
+  // keyset page ordered by (firstName, id), starting after the given key or from the start when it is null
+  List<Contact> searchAfter(String username, ContactSearchFilter filter, String afterFirstName, String afterId,
+      int limit);
+
+  // persist without the select that save() does first for an entity with an assigned id, so the
+  // inserts can go out as one JDBC batch; the contacts are flushed and detached before returning
+  void insertAll(List<Contact> contacts);
+
+  // two set-based statements, the addresses of the contacts and then the contacts, nothing is loaded;
+  // returns the number of contacts deleted
+  int deleteWithAddresses(String username, Collection<String> ids);
+
+  // the same for every contact matching the search filter
+  int deleteWithAddresses(String username, ContactSearchFilter filter);
+
+  /**
+   * Sets the changed fields (firstName, lastName, email, phone; null clears one) and the columns
+   * derived from them in a single UPDATE that also increments the version, without loading the
+   * contact. Returns 0 when the contact does not exist for the user or is not at that version.
+   */
+  int patch(String username, String id, long version, Map<String, String> changes);
+
+  // one row per contact and address (address columns null for a contact without any), contact version
+  // and address version last; rows of a contact are adjacent; read through a forward-only cursor, so it has to be consumed inside a transaction
+  Stream<Object[]> streamExport(String username, int fetchSize);
+}
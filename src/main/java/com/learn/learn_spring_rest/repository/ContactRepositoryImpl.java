@@ -0,0 +1,303 @@
+package com.learn.learn_spring_rest.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.learn.learn_spring_rest.entity.Contact;
+import com.learn.learn_spring_rest.search.Emails;
+import com.learn.learn_spring_rest.search.LikePatterns;
+import com.learn.learn_spring_rest.search.Names;
+import com.learn.learn_spring_rest.search.PhoneNumbers;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Contact search runs on one of a fixed set of JPQL strings, picked by which
+ * filters are present, with every value bound as a parameter. The same string
+ * always maps to the same Hibernate query plan, so after the first call a
+ * search skips the criteria building and HQL to SQL translation that a
+ * Specification pays on every request.
+ */
+@Transactional(readOnly = true)
+public class ContactRepositoryImpl implements ContactRepositoryCustom {
+
+  private static final int NAME = 1;
+
+  private static final int EMAIL = 2;
+
+  private static final int PHONE = 4;
+
+  private static final int IGNORE_CASE = 8;
+
+  private static final int SEEK = 16;
+
+  // the patterns bound below are escaped with LikePatterns
+  private static final String ESCAPE = " escape '\\'";
+
+  private static final String[] SELECT = new String[32];
+
+  private static final String[] COUNT = new String[32];
+
+  // deletes by filter, addresses of the matching contacts first for the foreign key
+  private static final String[] DELETE_ADDRESSES = new String[SEEK];
+
+  private static final String[] DELETE = new String[SEEK];
+
+  private static final String DELETE_ADDRESSES_BY_ID = "delete from Address a where a.contact.id in"
+      + " (select c.id from Contact c where c.user.username = :username and c.id in :ids)";
+
+  private static final String DELETE_BY_ID = "delete from Contact c where c.user.username = :username and c.id in :ids";
+
+  // fields a patch can change, bit i of a patch variant is set when PATCH_FIELDS[i] changes
+  private static final String[] PATCH_FIELDS = { "firstName", "lastName", "email", "phone" };
+
+  private static final String[] PATCH = new String[1 << PATCH_FIELDS.length];
+
+  // scalar columns rather than entities, so nothing piles up in the persistence context while streaming
+  private static final String EXPORT = "select c.id, c.firstName, c.lastName, c.email, c.phone,"
+      + " a.id, a.street, a.city, a.province, a.country, a.postalCode, c.version, a.version"
+      + " from Contact c left join c.addresses a where c.user.username = :username"
+      + " order by c.firstName, c.id";
+
+  static {
+    for (int variant = 0; variant < SELECT.length; variant++) {
+      String where = where(variant);
+      SELECT[variant] = "select c from Contact c where " + where
+          + ((variant & SEEK) != 0 ? " order by c.firstName, c.id" : "");
+      COUNT[variant] = "select count(c) from Contact c where " + where;
+      if ((variant & SEEK) == 0) {
+        DELETE_ADDRESSES[variant] = "delete from Address a where a.contact.id in (select c.id from Contact c where "
+            + where + ")";
+        DELETE[variant] = "delete from Contact c where " + where;
+      }
+    }
+    for (int variant = 1; variant < PATCH.length; variant++) {
+      PATCH[variant] = patch(variant);
+    }
+  }
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public Page<Contact> search(String username, ContactSearchFilter filter, Pageable pageable) {
+    if (matchesNothing(filter)) {
+      return new PageImpl<>(List.of(), pageable, 0);
+    }
+
+    int variant = variant(filter, false);
+    List<Contact> contacts = bind(entityManager.createQuery(SELECT[variant], Contact.class), username, filter)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
+
+    return PageableExecutionUtils.getPage(contacts, pageable,
+        () -> bind(entityManager.createQuery(COUNT[variant], Long.class), username, filter).getSingleResult());
+  }
+
+  @Override
+  public Slice<Contact> searchSlice(String username, ContactSearchFilter filter, Pageable pageable) {
+    if (matchesNothing(filter)) {
+      return new SliceImpl<>(List.of(), pageable, false);
+    }
+
+    List<Contact> contacts = bind(entityManager.createQuery(SELECT[variant(filter, false)], Contact.class),
+        username, filter)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize() + 1)
+        .getResultList();
+
+    boolean hasNext = contacts.size() > pageable.getPageSize();
+    return new SliceImpl<>(hasNext ? contacts.subList(0, pageable.getPageSize()) : contacts, pageable, hasNext);
+  }
+
+  @Override
+  public List<Contact> searchAfter(String username, ContactSearchFilter filter, String afterFirstName,
+      String afterId, int limit) {
+    if (matchesNothing(filter)) {
+      return List.of();
+    }
+
+    boolean seek = Objects.nonNull(afterFirstName);
+    TypedQuery<Contact> query = bind(entityManager.createQuery(SELECT[variant(filter, seek)], Contact.class), username, filter);
+    if (seek) {
+      query.setParameter("afterFirstName", afterFirstName);
+      query.setParameter("afterId", afterId);
+    }
+
+    return query.setMaxResults(limit).getResultList();
+  }
+
+  @Override
+  public Stream<Object[]> streamExport(String username, int fetchSize) {
+    return entityManager.createQuery(EXPORT, Object[].class)
+        .setParameter("username", username)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+        .getResultStream();
+  }
+
+  @Override
+  @Transactional
+  public void insertAll(List<Contact> contacts) {
+    contacts.forEach(entityManager::persist);
+    // written and let go now: an import runs its batches in one request-scoped persistence context,
+    // which would otherwise keep and dirty check every contact written so far
+    entityManager.flush();
+    contacts.forEach(entityManager::detach);
+  }
+
+  @Override
+  @Transactional
+  public int deleteWithAddresses(String username, Collection<String> ids) {
+    entityManager.createQuery(DELETE_ADDRESSES_BY_ID)
+        .setParameter("username", username)
+        .setParameter("ids", ids)
+        .executeUpdate();
+    return entityManager.createQuery(DELETE_BY_ID)
+        .setParameter("username", username)
+        .setParameter("ids", ids)
+        .executeUpdate();
+  }
+
+  @Override
+  @Transactional
+  public int deleteWithAddresses(String username, ContactSearchFilter filter) {
+    if (matchesNothing(filter)) {
+      return 0;
+    }
+
+    int variant = variant(filter, false);
+    bind(entityManager.createQuery(DELETE_ADDRESSES[variant]), username, filter).executeUpdate();
+    return bind(entityManager.createQuery(DELETE[variant]), username, filter).executeUpdate();
+  }
+
+  @Override
+  @Transactional
+  public int patch(String username, String id, long version, Map<String, String> changes) {
+    int variant = 0;
+    for (int i = 0; i < PATCH_FIELDS.length; i++) {
+      if (changes.containsKey(PATCH_FIELDS[i])) {
+        variant |= 1 << i;
+      }
+    }
+
+    Query query = entityManager.createQuery(PATCH[variant])
+        .setParameter("id", id)
+        .setParameter("username", username)
+        .setParameter("version", version);
+    changes.forEach(query::setParameter);
+
+    // the columns Contact.normalize() keeps in step, there is no entity here to do it
+    if (changes.containsKey("firstName")) {
+      query.setParameter("firstNamePhonetic", Names.phonetic(changes.get("firstName")));
+    }
+    if (changes.containsKey("lastName")) {
+      query.setParameter("lastNamePhonetic", Names.phonetic(changes.get("lastName")));
+    }
+    if (changes.containsKey("email")) {
+      query.setParameter("emailNormalized", Emails.normalize(changes.get("email")));
+    }
+    if (changes.containsKey("phone")) {
+      String digits = PhoneNumbers.digits(changes.get("phone"));
+      query.setParameter("phoneDigits", digits);
+      query.setParameter("phoneDigitsReversed", PhoneNumbers.reversed(digits));
+    }
+    return query.executeUpdate();
+  }
+
+  private static String patch(int variant) {
+    StringBuilder set = new StringBuilder("update Contact c set ");
+    if ((variant & 1) != 0) {
+      set.append("c.firstName = :firstName, c.firstNamePhonetic = :firstNamePhonetic, ");
+    }
+    if ((variant & 2) != 0) {
+      set.append("c.lastName = :lastName, c.lastNamePhonetic = :lastNamePhonetic, ");
+    }
+    if ((variant & 4) != 0) {
+      set.append("c.email = :email, c.emailNormalized = :emailNormalized, ");
+    }
+    if ((variant & 8) != 0) {
+      set.append("c.phone = :phone, c.phoneDigits = :phoneDigits, c.phoneDigitsReversed = :phoneDigitsReversed, ");
+    }
+    return set.append("c.version = c.version + 1")
+        .append(" where c.id = :id and c.user.username = :username and c.version = :version")
+        .toString();
+  }
+
+  private static int variant(ContactSearchFilter filter, boolean seek) {
+    int variant = 0;
+    if (Objects.nonNull(filter.name())) {
+      variant |= NAME;
+    }
+    if (Objects.nonNull(filter.email())) {
+      variant |= EMAIL;
+    }
+    if (Objects.nonNull(filter.phone())) {
+      variant |= PHONE;
+    }
+    if (filter.ignoreCase()) {
+      variant |= IGNORE_CASE;
+    }
+    if (seek) {
+      variant |= SEEK;
+    }
+    return variant;
+  }
+
+  private static String where(int variant) {
+    String like = (variant & IGNORE_CASE) != 0 ? " ilike " : " like ";
+
+    StringBuilder where = new StringBuilder("c.user.username = :username");
+    if ((variant & NAME) != 0) {
+      where.append(" and (c.firstName").append(like).append(":name").append(ESCAPE)
+          .append(" or c.lastName").append(like).append(":name").append(ESCAPE).append(")");
+    }
+    if ((variant & EMAIL) != 0) {
+      where.append(" and c.email").append(like).append(":email").append(ESCAPE);
+    }
+    if ((variant & PHONE) != 0) {
+      where.append(" and (c.phoneDigits like :phonePrefix").append(ESCAPE)
+          .append(" or c.phoneDigitsReversed like :phoneSuffix").append(ESCAPE).append(")");
+    }
+    if ((variant & SEEK) != 0) {
+      where.append(" and (c.firstName > :afterFirstName or (c.firstName = :afterFirstName and c.id > :afterId))");
+    }
+    return where.toString();
+  }
+
+  // a phone query without digits matches no number, answered without a query
+  private static boolean matchesNothing(ContactSearchFilter filter) {
+    return Objects.nonNull(filter.phone()) && PhoneNumbers.digits(filter.phone()).isEmpty();
+  }
+
+  private static <Q extends Query> Q bind(Q query, String username, ContactSearchFilter filter) {
+    query.setParameter("username", username);
+    if (Objects.nonNull(filter.name())) {
+      query.setParameter("name", LikePatterns.contains(filter.name()));
+    }
+    if (Objects.nonNull(filter.email())) {
+      query.setParameter("email", LikePatterns.contains(filter.email()));
+    }
+    if (Objects.nonNull(filter.phone())) {
+      String digits = PhoneNumbers.digits(filter.phone());
+      query.setParameter("phonePrefix", LikePatterns.startsWith(digits));
+      query.setParameter("phoneSuffix", LikePatterns.startsWith(PhoneNumbers.reversed(digits)));
+    }
+    return query;
+  }
+}
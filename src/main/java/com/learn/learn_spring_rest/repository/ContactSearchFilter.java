@@ -0,0 +1,8 @@
+package com.learn.learn_spring_rest.repository;
+
+/**
+ * Contact search filters, each one optional. ignoreCase switches the
+ * substring match from LIKE to ILIKE.
+ */
+public record ContactSearchFilter(String name, String email, String phone, boolean ignoreCase) {
+}
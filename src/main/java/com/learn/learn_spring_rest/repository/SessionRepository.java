@@ -0,0 +1,31 @@
+package com.learn.learn_spring_rest.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.learn.learn_spring_rest.entity.Session;
+
+@Repository
+public interface SessionRepository extends JpaRepository<Session, String> {
+
+  Optional<Session> findFirstByRefreshTokenHash(String refreshTokenHash);
+
+  // claims a refresh: of concurrent refreshes with the same token only one deletes the row
+  @Modifying
+  @Query("delete from Session s where s.token = :token and s.refreshTokenHash = :refreshTokenHash")
+  int deleteByTokenAndRefreshTokenHash(@Param("token") String token,
+      @Param("refreshTokenHash") String refreshTokenHash);
+
+  @Query("select s.token from Session s")
+  List<String> findAllTokens();
+
+  @Modifying
+  @Query("delete from Session s where s.expiredAt < :now and (s.refreshExpiredAt is null or s.refreshExpiredAt < :now)")
+  int deleteAllExpired(@Param("now") Long now);
+}
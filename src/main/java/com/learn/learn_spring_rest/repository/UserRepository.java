@@ -1,13 +1,21 @@
 package com.learn.learn_spring_rest.repository;
 
-import java.util.Optional;
-
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.learn.learn_spring_rest.entity.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
-  Optional<User> findFirstByToken(String token);
+
+  // only replaces the hash it was computed from, so a concurrent password change wins
+  @Transactional
+  @Modifying
+  @Query("update User u set u.password = :password where u.username = :username and u.password = :current")
+  int updatePassword(@Param("username") String username, @Param("current") String current,
+      @Param("password") String password);
 }
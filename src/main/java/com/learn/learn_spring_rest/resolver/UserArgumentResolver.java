@@ -13,7 +13,14 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.repository.SessionRepository;
 import com.learn.learn_spring_rest.repository.UserRepository;
+import com.learn.learn_spring_rest.security.CachedSession;
+import com.learn.learn_spring_rest.security.SessionRenewalWriter;
+import com.learn.learn_spring_rest.security.SignedTokenService;
+import com.learn.learn_spring_rest.security.SignedTokenService.SignedToken;
+import com.learn.learn_spring_rest.security.TokenCache;
+import com.learn.learn_spring_rest.security.TokenFilter;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -23,6 +30,21 @@ public class UserArgumentResolver implements HandlerMethodArgumentResolver {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private SessionRepository sessionRepository;
+
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private SignedTokenService signedTokenService;
+
+  @Autowired
+  private TokenFilter tokenFilter;
+
+  @Autowired
+  private SessionRenewalWriter sessionRenewalWriter;
+
   @Override
   public boolean supportsParameter(@NonNull MethodParameter parameter) {
     return User.class.equals(parameter.getParameterType());
@@ -39,14 +61,51 @@ public class UserArgumentResolver implements HandlerMethodArgumentResolver {
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "UNAUTHORIZED");
     }
 
-    User user = userRepository.findFirstByToken(token).orElseThrow(
+    if (signedTokenService.isEnabled()) {
+      return resolveSignedToken(token);
+    }
+
+    if (!tokenFilter.mightContain(token)) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "UNAUTHORIZED");
+    }
+
+    CachedSession session = tokenCache.get(token, this::loadSession);
+    if (session == null) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "UNAUTHORIZED");
+    }
+
+    if (session.expiredAt() == null || session.expiredAt() < System.currentTimeMillis()) {
+      tokenCache.invalidate(token);
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token Expired");
+    }
+
+    sessionRenewalWriter.renewIfNeeded(session);
+    // a proxy of this request's own, the users row is only read when a service touches a non-id field
+    return userRepository.getReferenceById(session.username());
+  }
+
+  private User resolveSignedToken(String token) {
+    SignedToken signedToken = signedTokenService.verify(token).orElseThrow(
         () -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "UNAUTHORIZED"));
 
-    if (user.getTokenExpiredAt() < System.currentTimeMillis()) {
+    if (signedToken.expiredAt() < System.currentTimeMillis()) {
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token Expired");
     }
 
-    return user;
+    // logout and refresh delete the session row, which is what revokes a signed token; the
+    // cached check means another instance notices within the token cache ttl
+    if (tokenCache.get(signedToken.sessionId(), this::loadSession) == null) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "UNAUTHORIZED");
+    }
+
+    // a proxy, the users row is only read when a service touches a non-id field
+    return userRepository.getReferenceById(signedToken.username());
+  }
+
+  private CachedSession loadSession(String token) {
+    return sessionRepository.findById(token)
+        .map(session -> new CachedSession(session.getToken(), session.getUser().getUsername(), session.getExpiredAt()))
+        .orElse(null);
   }
 
 }
@@ -0,0 +1,29 @@
+package com.learn.learn_spring_rest.search;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers an in-memory update until the surrounding transaction commits, so a
+ * rolled back write never shows up in a cache. Runs straight away outside a
+ * transaction.
+ */
+final class AfterCommit {
+
+  private AfterCommit() {
+  }
+
+  static void run(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+}
@@ -0,0 +1,64 @@
+package com.learn.learn_spring_rest.search;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learn.learn_spring_rest.model.ContactResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Small cache in front of the exact phone / email lookup, keyed by the
+ * normalized values. Any contact write of a user drops that user's entries
+ * once it commits.
+ */
+@Component
+public class ContactLookupCache {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.contact.lookup-cache.maximum-size:10000}")
+  private long maximumSize;
+
+  @Value("${app.contact.lookup-cache.ttl:1m}")
+  private Duration ttl;
+
+  private Cache<Key, List<ContactResponse>> cache;
+
+  @PostConstruct
+  void init() {
+    cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "contactLookupCache");
+  }
+
+  public List<ContactResponse> get(String username, String phoneDigits, String email,
+      Supplier<List<ContactResponse>> loader) {
+    return cache.get(new Key(username, phoneDigits, email), key -> loader.get());
+  }
+
+  public void invalidateUser(String username) {
+    AfterCommit.run(() -> cache.asMap().keySet().removeIf(key -> key.username().equals(username)));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private record Key(String username, String phoneDigits, String email) {
+  }
+}
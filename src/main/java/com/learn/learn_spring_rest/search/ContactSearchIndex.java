@@ -0,0 +1,341 @@
+package com.learn.learn_spring_rest.search;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.learn.learn_spring_rest.model.ContactResponse;
+import com.learn.learn_spring_rest.model.SearchContactRequest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Per-user in-memory contact search. A user's index is built from one query on
+ * their first search, kept up to date from the contact service after each
+ * commit, and whole indexes are evicted least recently used first once the
+ * estimated total goes over the memory budget. A user whose index alone is
+ * over the budget is not cached at all and searches the database until the
+ * ttl has passed, instead of evicting everyone else and rebuilding on every
+ * search.
+ *
+ * <p>Writes that do not go through the contact service (or happen on another
+ * instance) are only picked up once the index expires after the ttl.
+ */
+@Component
+public class ContactSearchIndex {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.contact.index.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.contact.index.max-size:64MB}")
+  private DataSize maxSize;
+
+  @Value("${app.contact.index.ttl:10m}")
+  private Duration ttl;
+
+  // ordered by last search, so iteration starts at the least recently used user; only a search
+  // moves a user to the end, applying a write must not change which user is evicted next
+  private final LinkedHashMap<String, UserContactIndex> indexes = new LinkedHashMap<>();
+
+  // users whose index is being built; a write for that user replaces the marker so the
+  // finished build knows it missed something and is thrown away
+  private final Map<String, Object> loading = new HashMap<>();
+
+  // users whose index did not fit the budget on its own, until when they are not indexed
+  private final Map<String, Long> oversized = new HashMap<>();
+
+  private long totalBytes;
+
+  private Counter hits;
+
+  private Counter loads;
+
+  private Counter evictions;
+
+  private Counter skipped;
+
+  private Timer suggestTimer;
+
+  @PostConstruct
+  void init() {
+    Gauge.builder("contact.index.size", this, ContactSearchIndex::totalBytes)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("contact.index.users", this, ContactSearchIndex::users)
+        .register(meterRegistry);
+    hits = meterRegistry.counter("contact.index.requests", "result", "hit");
+    loads = meterRegistry.counter("contact.index.requests", "result", "load");
+    evictions = meterRegistry.counter("contact.index.evictions");
+    skipped = meterRegistry.counter("contact.index.requests", "result", "oversized");
+    suggestTimer = Timer.builder("contact.index.suggest")
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Answers the search from the user's index, building it with the loader on a
+   * miss. Empty when the index is disabled or a concurrent write made the build
+   * stale, in which case the caller should query the database.
+   */
+  public Optional<Page<ContactResponse>> search(String username, SearchContactRequest request,
+      Supplier<List<ContactResponse>> loader) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+
+    UserContactIndex index = resolve(username, loader);
+    if (index == null) {
+      return Optional.empty();
+    }
+
+    Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+    int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+    UserContactIndex.Result result = isFuzzy(request)
+        ? index.fuzzySearch(request.getName(), request.getEmail(), request.getPhone(), offset, pageable.getPageSize())
+        : index.search(request.getName(), request.getEmail(), request.getPhone(), offset, pageable.getPageSize());
+
+    return Optional.of(new PageImpl<>(result.content(), pageable, result.total()));
+  }
+
+  /**
+   * Ranks the given contacts by {@link Names#score} against the query name,
+   * for the fuzzy search fallback where the candidates come from the database.
+   */
+  public Page<ContactResponse> rank(List<ContactResponse> candidates, SearchContactRequest request) {
+    Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+    UserContactIndex.Result result = new UserContactIndex(candidates).fuzzySearch(request.getName(),
+        request.getEmail(), request.getPhone(), (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE),
+        pageable.getPageSize());
+    return new PageImpl<>(result.content(), pageable, result.total());
+  }
+
+  public boolean isFuzzy(SearchContactRequest request) {
+    return Boolean.TRUE.equals(request.getFuzzy()) && request.getName() != null && !request.getName().isBlank();
+  }
+
+  /**
+   * Ids of up to limit contacts with a name word (or the full name) starting
+   * with the prefix, shortest match first. Empty under the same conditions as
+   * {@link #search}.
+   */
+  public Optional<List<String>> suggest(String username, String prefix, int limit,
+      Supplier<List<ContactResponse>> loader) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+
+    long start = System.nanoTime();
+    UserContactIndex index = resolve(username, loader);
+    if (index == null) {
+      return Optional.empty();
+    }
+
+    List<String> ids = index.suggest(prefix, limit);
+    suggestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return Optional.of(ids);
+  }
+
+  public void saved(String username, ContactResponse contact) {
+    AfterCommit.run(() -> {
+      UserContactIndex index = mutate(username);
+      if (index != null) {
+        index.put(contact);
+        resized(username, index);
+      }
+    });
+  }
+
+  // for a write that did not load the contact: the change is applied to the indexed copy
+  public void patched(String username, String contactId, UnaryOperator<ContactResponse> patch) {
+    AfterCommit.run(() -> {
+      UserContactIndex index = mutate(username);
+      if (index == null) {
+        return;
+      }
+      if (index.patch(contactId, patch)) {
+        resized(username, index);
+      } else {
+        invalidate(username);
+      }
+    });
+  }
+
+  public void deleted(String username, String contactId) {
+    AfterCommit.run(() -> {
+      UserContactIndex index = mutate(username);
+      if (index != null) {
+        index.remove(contactId);
+        resized(username, index);
+      }
+    });
+  }
+
+  // for deletes by filter, which do not know the ids: the index is rebuilt on the next search
+  public void deletedAll(String username) {
+    AfterCommit.run(() -> invalidate(username));
+  }
+
+  public synchronized void invalidate(String username) {
+    UserContactIndex index = indexes.remove(username);
+    if (index != null) {
+      totalBytes -= index.accountedBytes;
+    }
+    loading.remove(username);
+    oversized.remove(username);
+  }
+
+  public synchronized void invalidateAll() {
+    indexes.clear();
+    loading.clear();
+    oversized.clear();
+    totalBytes = 0;
+  }
+
+  private UserContactIndex resolve(String username, Supplier<List<ContactResponse>> loader) {
+    if (isOversized(username)) {
+      skipped.increment();
+      return null;
+    }
+
+    UserContactIndex index = get(username);
+    if (index == null) {
+      return load(username, loader);
+    }
+    hits.increment();
+    return index;
+  }
+
+  private synchronized UserContactIndex get(String username) {
+    UserContactIndex index = indexes.remove(username);
+    if (index == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() - index.loadedAt() > ttl.toMillis()) {
+      totalBytes -= index.accountedBytes;
+      return null;
+    }
+    indexes.put(username, index);
+    return index;
+  }
+
+  private UserContactIndex load(String username, Supplier<List<ContactResponse>> loader) {
+    Object marker = new Object();
+    synchronized (this) {
+      loading.put(username, marker);
+    }
+
+    UserContactIndex index = new UserContactIndex(loader.get());
+
+    synchronized (this) {
+      if (loading.get(username) != marker) {
+        return null;
+      }
+      loading.remove(username);
+
+      // answers this search, but caching it would push every other user out and still not fit
+      if (index.estimatedBytes() > maxSize.toBytes()) {
+        markOversized(username);
+        return index;
+      }
+
+      UserContactIndex previous = indexes.put(username, index);
+      if (previous != null) {
+        totalBytes -= previous.accountedBytes;
+      }
+      account(index);
+      evict();
+    }
+
+    loads.increment();
+    return index;
+  }
+
+  private synchronized UserContactIndex mutate(String username) {
+    if (loading.containsKey(username)) {
+      loading.put(username, new Object());
+    }
+    return indexes.get(username);
+  }
+
+  private synchronized void resized(String username, UserContactIndex index) {
+    if (indexes.get(username) != index) {
+      return;
+    }
+    // checked before evicting, an index that no longer fits on its own must not push anyone else out
+    if (index.estimatedBytes() > maxSize.toBytes()) {
+      indexes.remove(username);
+      totalBytes -= index.accountedBytes;
+      markOversized(username);
+      return;
+    }
+    account(index);
+    evict();
+  }
+
+  private synchronized boolean isOversized(String username) {
+    Long until = oversized.get(username);
+    if (until == null) {
+      return false;
+    }
+    if (System.currentTimeMillis() > until) {
+      oversized.remove(username);
+      return false;
+    }
+    return true;
+  }
+
+  private void markOversized(String username) {
+    oversized.put(username, System.currentTimeMillis() + ttl.toMillis());
+  }
+
+  // the index tracks its own size, the total only takes the difference since last time
+  private void account(UserContactIndex index) {
+    long current = index.estimatedBytes();
+    totalBytes += current - index.accountedBytes;
+    index.accountedBytes = current;
+  }
+
+  private void evict() {
+    Iterator<UserContactIndex> iterator = indexes.values().iterator();
+    while (totalBytes > maxSize.toBytes() && iterator.hasNext()) {
+      totalBytes -= iterator.next().accountedBytes;
+      iterator.remove();
+      evictions.increment();
+    }
+  }
+
+  private synchronized long totalBytes() {
+    return totalBytes;
+  }
+
+  private synchronized int users() {
+    return indexes.size();
+  }
+}
@@ -0,0 +1,17 @@
+package com.learn.learn_spring_rest.search;
+
+import java.util.Locale;
+
+/**
+ * Emails are looked up trimmed and lower cased, so "Eko@Example.com " finds
+ * the contact saved as "eko@example.com".
+ */
+public final class Emails {
+
+  private Emails() {
+  }
+
+  public static String normalize(String email) {
+    return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+  }
+}
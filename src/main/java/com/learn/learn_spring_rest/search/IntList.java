@@ -0,0 +1,100 @@
+package com.learn.learn_spring_rest.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, growable list of primitive ints used as a posting list, so the index
+ * does not box one Integer per contact per gram.
+ */
+class IntList {
+
+  private int[] values;
+
+  private int size;
+
+  IntList() {
+    this(4);
+  }
+
+  IntList(int capacity) {
+    values = new int[Math.max(1, capacity)];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void add(int value) {
+    if (size > 0 && values[size - 1] >= value) {
+      insert(value);
+      return;
+    }
+
+    grow();
+    values[size++] = value;
+  }
+
+  boolean remove(int value) {
+    int index = Arrays.binarySearch(values, 0, size, value);
+    if (index < 0) {
+      return false;
+    }
+
+    System.arraycopy(values, index + 1, values, index, size - index - 1);
+    size--;
+    return true;
+  }
+
+  boolean contains(int value) {
+    return Arrays.binarySearch(values, 0, size, value) >= 0;
+  }
+
+  IntList intersect(IntList other) {
+    IntList result = new IntList(Math.min(size, other.size));
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (values[i] < other.values[j]) {
+        i++;
+      } else if (values[i] > other.values[j]) {
+        j++;
+      } else {
+        result.values[result.size++] = values[i];
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  long estimatedBytes() {
+    return 16 + 16 + 4L * values.length;
+  }
+
+  private void insert(int value) {
+    int index = Arrays.binarySearch(values, 0, size, value);
+    if (index >= 0) {
+      return;
+    }
+
+    index = -index - 1;
+    grow();
+    System.arraycopy(values, index, values, index + 1, size - index);
+    values[index] = value;
+    size++;
+  }
+
+  private void grow() {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.learn.learn_spring_rest.search;
+
+/**
+ * User input bound into a LIKE pattern is escaped first, so "%" and "_" in a
+ * query match themselves instead of any text. The queries declare
+ * {@code escape '\'} to go with it.
+ */
+public final class LikePatterns {
+
+  private LikePatterns() {
+  }
+
+  public static String escape(String value) {
+    if (value == null) {
+      return null;
+    }
+
+    StringBuilder escaped = new StringBuilder(value.length() + 8);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '%' || c == '_') {
+        escaped.append('\\');
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+
+  public static String contains(String value) {
+    return "%" + escape(value) + "%";
+  }
+
+  public static String startsWith(String value) {
+    return escape(value) + "%";
+  }
+}
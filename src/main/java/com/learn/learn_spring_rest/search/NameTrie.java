@@ -0,0 +1,204 @@
+package com.learn.learn_spring_rest.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Prefix tree over lower cased name terms, each terminal node holding the doc
+ * ids of the contacts with that term. Serves prefix suggestions and the typo
+ * tolerant part of fuzzy search. Children are kept in sorted parallel
+ * arrays instead of maps, and empty branches are pruned on removal.
+ */
+class NameTrie {
+
+  private static final char[] NO_LABELS = new char[0];
+
+  private static final Node[] NO_CHILDREN = new Node[0];
+
+  // rough size of a node with its two arrays, only used for the memory budget
+  private static final long NODE_BYTES = 64;
+
+  private final Node root = new Node();
+
+  private long estimatedBytes = NODE_BYTES;
+
+  long estimatedBytes() {
+    return estimatedBytes;
+  }
+
+  void add(String term, int docId) {
+    Node node = root;
+    for (int i = 0; i < term.length(); i++) {
+      Node child = node.child(term.charAt(i));
+      if (child == null) {
+        child = node.addChild(term.charAt(i));
+        estimatedBytes += NODE_BYTES + Character.BYTES + 8;
+      }
+      node = child;
+    }
+
+    if (node.docs == null) {
+      node.docs = new IntList(1);
+      estimatedBytes += 32;
+    }
+    if (!node.docs.contains(docId)) {
+      node.docs.add(docId);
+      estimatedBytes += Integer.BYTES;
+    }
+  }
+
+  void remove(String term, int docId) {
+    remove(root, term, 0, docId);
+  }
+
+  // doc ids under the prefix, shorter terms first and alphabetical within the same length
+  Set<Integer> collect(String prefix, int limit) {
+    Set<Integer> result = new LinkedHashSet<>();
+    Node node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.child(prefix.charAt(i));
+    }
+    if (node == null) {
+      return result;
+    }
+
+    ArrayDeque<Node> queue = new ArrayDeque<>();
+    queue.add(node);
+    while (!queue.isEmpty() && result.size() < limit) {
+      Node current = queue.poll();
+      if (current.docs != null) {
+        for (int i = 0; i < current.docs.size() && result.size() < limit; i++) {
+          result.add(current.docs.get(i));
+        }
+      }
+      for (Node child : current.children) {
+        queue.add(child);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Hands the doc ids of every term within max edits of the word to the
+   * consumer. This walks the trie like a Levenshtein automaton: each node
+   * computes one row of the edit distance table from its parent's row, and a
+   * branch is dropped as soon as its rows can no longer get back under max.
+   * A swap of neighbouring letters counts as one edit, as in {@link Names#distance}.
+   */
+  void search(String word, int max, Consumer<IntList> consumer) {
+    int[] row = new int[word.length() + 1];
+    for (int j = 0; j <= word.length(); j++) {
+      row[j] = j;
+    }
+
+    for (int i = 0; i < root.labels.length; i++) {
+      walk(root.children[i], root.labels[i], (char) 0, word, max, row, null, 0, consumer);
+    }
+  }
+
+  private void walk(Node node, char label, char previousLabel, String word, int max, int[] previous,
+      int[] beforePrevious, int previousMin, Consumer<IntList> consumer) {
+    int[] current = new int[word.length() + 1];
+    current[0] = previous[0] + 1;
+    int rowMin = current[0];
+    for (int j = 1; j <= word.length(); j++) {
+      int cost = word.charAt(j - 1) == label ? 0 : 1;
+      current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+      if (beforePrevious != null && j > 1 && word.charAt(j - 2) == label && word.charAt(j - 1) == previousLabel) {
+        current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+      }
+      rowMin = Math.min(rowMin, current[j]);
+    }
+
+    if (current[word.length()] <= max && node.docs != null) {
+      consumer.accept(node.docs);
+    }
+    // a swap reaches back two rows, so both have to be over the bound
+    if (rowMin > max && previousMin > max) {
+      return;
+    }
+
+    for (int i = 0; i < node.labels.length; i++) {
+      walk(node.children[i], node.labels[i], label, word, max, current, previous, rowMin, consumer);
+    }
+  }
+
+  // true when the node has nothing left and can be dropped by its parent
+  private boolean remove(Node node, String term, int index, int docId) {
+    if (index == term.length()) {
+      if (node.docs != null && node.docs.remove(docId)) {
+        estimatedBytes -= Integer.BYTES;
+        if (node.docs.isEmpty()) {
+          node.docs = null;
+          estimatedBytes -= 32;
+        }
+      }
+      return node.docs == null && node.labels.length == 0;
+    }
+
+    Node child = node.child(term.charAt(index));
+    if (child != null && remove(child, term, index + 1, docId)) {
+      node.removeChild(term.charAt(index));
+      estimatedBytes -= NODE_BYTES + Character.BYTES + 8;
+    }
+    return node != root && node.docs == null && node.labels.length == 0;
+  }
+
+  private static class Node {
+
+    private char[] labels = NO_LABELS;
+
+    private Node[] children = NO_CHILDREN;
+
+    private IntList docs;
+
+    Node child(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      return index >= 0 ? children[index] : null;
+    }
+
+    Node addChild(char label) {
+      int index = -Arrays.binarySearch(labels, label) - 1;
+      Node child = new Node();
+
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newLabels[index] = label;
+      newChildren[index] = child;
+      System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+      labels = newLabels;
+      children = newChildren;
+      return child;
+    }
+
+    void removeChild(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      if (index < 0) {
+        return;
+      }
+
+      if (labels.length == 1) {
+        labels = NO_LABELS;
+        children = NO_CHILDREN;
+        return;
+      }
+
+      char[] newLabels = new char[labels.length - 1];
+      Node[] newChildren = new Node[children.length - 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+      System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+
+      labels = newLabels;
+      children = newChildren;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.learn.learn_spring_rest.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+/**
+ * Typo tolerant name matching. Names are compared word by word: an exact
+ * word, a word starting with the query, a word within a small edit distance,
+ * or a word that sounds the same (same Double Metaphone key) all match, each
+ * scoring a little less than the one before.
+ */
+public final class Names {
+
+  private static final DoubleMetaphone METAPHONE = new DoubleMetaphone();
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private Names() {
+  }
+
+  public static List<String> words(String... values) {
+    List<String> words = new ArrayList<>();
+    for (String value : values) {
+      if (value == null || value.isBlank()) {
+        continue;
+      }
+      for (String word : WHITESPACE.split(value.trim().toLowerCase(Locale.ROOT))) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+
+  // primary and alternate Double Metaphone keys, empty for words without letters
+  public static Set<String> phoneticKeys(String word) {
+    Set<String> keys = new LinkedHashSet<>(2);
+    String primary = METAPHONE.doubleMetaphone(word);
+    if (primary != null && !primary.isEmpty()) {
+      keys.add(primary);
+      keys.add(METAPHONE.doubleMetaphone(word, true));
+    }
+    keys.remove("");
+    return keys;
+  }
+
+  // the keys of every name word, space separated and padded so LIKE '% KEY %' finds a whole key
+  public static String phonetic(String... names) {
+    Set<String> keys = new LinkedHashSet<>();
+    for (String word : words(names)) {
+      keys.addAll(phoneticKeys(word));
+    }
+    return keys.isEmpty() ? "" : " " + String.join(" ", keys) + " ";
+  }
+
+  // edits allowed for a query word, short words must match exactly or they match everything
+  public static int maxDistance(String word) {
+    if (word.length() <= 3) {
+      return 0;
+    }
+    return word.length() <= 6 ? 1 : 2;
+  }
+
+  /**
+   * Edit distance between the two words counting a swap of two neighbouring
+   * letters as one edit (optimal string alignment), or max + 1 as soon as it
+   * is known to be larger than max.
+   */
+  public static int distance(String a, String b, int max) {
+    if (Math.abs(a.length() - b.length()) > max) {
+      return max + 1;
+    }
+
+    int[] beforePrevious = new int[b.length() + 1];
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+
+    int previousMin = 0;
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+        }
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      // a swap reaches back two rows, so both have to be over the bound
+      if (rowMin > max && previousMin > max) {
+        return max + 1;
+      }
+      previousMin = rowMin;
+
+      int[] swap = beforePrevious;
+      beforePrevious = previous;
+      previous = current;
+      current = swap;
+    }
+    return Math.min(previous[b.length()], max + 1);
+  }
+
+  /**
+   * Score of a contact name for the query words, between 0 and 1. Every query
+   * word has to match some name word, otherwise the score is 0.
+   */
+  public static double score(List<String> queryWords, String firstName, String lastName) {
+    List<String> nameWords = words(firstName, lastName);
+    return score(queryWords, nameWords, i -> soundsLike(phoneticKeys(queryWords.get(i)), nameWords));
+  }
+
+  // soundsLike tells whether the query word at an index has the same phonetic key as a name word,
+  // the index answers it from its phonetic postings instead of encoding the name again
+  static double score(List<String> queryWords, List<String> nameWords, IntPredicate soundsLike) {
+    if (queryWords.isEmpty()) {
+      return 0;
+    }
+
+    double total = 0;
+    for (int i = 0; i < queryWords.size(); i++) {
+      double best = 0;
+      for (String word : nameWords) {
+        best = Math.max(best, wordScore(queryWords.get(i), word));
+      }
+      if (best == 0 && queryWords.get(i).length() > 1 && soundsLike.test(i)) {
+        best = 0.5;
+      }
+
+      if (best == 0) {
+        return 0;
+      }
+      total += best;
+    }
+    return total / queryWords.size();
+  }
+
+  private static boolean soundsLike(Set<String> queryKeys, List<String> nameWords) {
+    for (String word : nameWords) {
+      for (String key : phoneticKeys(word)) {
+        if (queryKeys.contains(key)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static double wordScore(String query, String word) {
+    if (word.equals(query)) {
+      return 1;
+    }
+    if (word.startsWith(query)) {
+      return 0.9;
+    }
+
+    int max = maxDistance(query);
+    int distance = max == 0 ? 1 : distance(query, word, max);
+    return distance <= max ? 0.8 - 0.15 * (distance - 1) : 0;
+  }
+}
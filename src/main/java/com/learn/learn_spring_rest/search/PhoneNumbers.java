@@ -0,0 +1,40 @@
+package com.learn.learn_spring_rest.search;
+
+/**
+ * Phone numbers are stored and searched as their digits only, so
+ * "0812-3456 789", "(0812) 3456789" and "08123456789" are the same number.
+ */
+public final class PhoneNumbers {
+
+  private PhoneNumbers() {
+  }
+
+  public static String digits(String phone) {
+    if (phone == null) {
+      return null;
+    }
+
+    StringBuilder digits = new StringBuilder(phone.length());
+    for (int i = 0; i < phone.length(); i++) {
+      char c = phone.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits.append(c);
+      }
+    }
+    return digits.toString();
+  }
+
+  // suffix lookups run as a prefix lookup on the reversed digits
+  public static String reversed(String digits) {
+    return digits == null ? null : new StringBuilder(digits).reverse().toString();
+  }
+
+  public static boolean matches(String phone, String queryDigits) {
+    if (phone == null || queryDigits.isEmpty()) {
+      return false;
+    }
+
+    String digits = digits(phone);
+    return digits.startsWith(queryDigits) || digits.endsWith(queryDigits);
+  }
+}
@@ -0,0 +1,404 @@
+package com.learn.learn_spring_rest.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.learn.learn_spring_rest.model.ContactResponse;
+
+/**
+ * Trigram inverted index over one user's contacts. Each contact gets a dense
+ * doc id and every field keeps gram to doc id postings. A query intersects
+ * the postings of its grams and then checks the candidates with the same
+ * match the database query uses: a substring for names and email, a digits
+ * prefix or suffix for phone. Queries shorter than a gram scan the user's
+ * contacts directly.
+ *
+ * <p>Fuzzy name search collects candidates from an edit distance walk and a
+ * prefix lookup over the name trie plus Double Metaphone keys, then ranks them
+ * by {@link Names#score}.
+ */
+class UserContactIndex {
+
+  private static final int GRAM = 3;
+
+  private static final int NAME = 0;
+
+  private static final int EMAIL = 1;
+
+  private static final int PHONE = 2;
+
+  // rough per-object sizes, only used to keep the total under the configured budget
+  private static final long GRAM_BYTES = 64;
+
+  private static final long DOC_BYTES = 120;
+
+  private final List<ContactResponse> docs = new ArrayList<>();
+
+  private final Map<String, Integer> docIds = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  private final Map<Long, IntList>[] postings = new Map[] { new HashMap<>(), new HashMap<>(), new HashMap<>() };
+
+  private NameTrie names = new NameTrie();
+
+  private final Map<String, IntList> phonetic = new HashMap<>();
+
+  private final long loadedAt = System.currentTimeMillis();
+
+  // size last added to the cache total, guarded by ContactSearchIndex
+  long accountedBytes;
+
+  private long estimatedBytes;
+
+  private int removed;
+
+  UserContactIndex(List<ContactResponse> contacts) {
+    contacts.forEach(this::add);
+  }
+
+  long loadedAt() {
+    return loadedAt;
+  }
+
+  synchronized long estimatedBytes() {
+    return estimatedBytes + names.estimatedBytes();
+  }
+
+  synchronized List<String> suggest(String prefix, int limit) {
+    List<String> ids = new ArrayList<>(limit);
+    for (int docId : names.collect(prefix.toLowerCase(Locale.ROOT), limit)) {
+      ids.add(docs.get(docId).getId());
+    }
+    return ids;
+  }
+
+  synchronized Result search(String name, String email, String phone, int offset, int limit) {
+    IntList candidates = null;
+    candidates = narrow(candidates, NAME, name);
+    candidates = narrow(candidates, EMAIL, email);
+    candidates = narrow(candidates, PHONE, phone);
+
+    String nameQuery = lower(name);
+    String emailQuery = lower(email);
+    String phoneQuery = PhoneNumbers.digits(phone);
+
+    List<ContactResponse> content = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+    int total = 0;
+    int count = candidates == null ? docs.size() : candidates.size();
+    for (int i = 0; i < count; i++) {
+      ContactResponse contact = docs.get(candidates == null ? i : candidates.get(i));
+      if (contact == null
+          || !(matches(contact.getFirstName(), nameQuery) || matches(contact.getLastName(), nameQuery))
+          || !matches(contact.getEmail(), emailQuery)
+          || (phoneQuery != null && !PhoneNumbers.matches(contact.getPhone(), phoneQuery))) {
+        continue;
+      }
+
+      if (total >= offset && content.size() < limit) {
+        content.add(contact);
+      }
+      total++;
+    }
+
+    return new Result(content, total);
+  }
+
+  synchronized Result fuzzySearch(String name, String email, String phone, int offset, int limit) {
+    List<String> queryWords = Names.words(name);
+    if (queryWords.isEmpty()) {
+      return new Result(List.of(), 0);
+    }
+
+    // every query word has to match, so the candidates are the intersection of each word's matches
+    BitSet candidates = null;
+    BitSet[] soundsLike = new BitSet[queryWords.size()];
+    for (int i = 0; i < queryWords.size(); i++) {
+      String word = queryWords.get(i);
+      BitSet matches = new BitSet(docs.size());
+      names.search(word, Names.maxDistance(word), list -> addAll(matches, list));
+      names.collect(word, Integer.MAX_VALUE).forEach(matches::set);
+
+      soundsLike[i] = new BitSet(docs.size());
+      for (String key : Names.phoneticKeys(word)) {
+        IntList list = phonetic.get(key);
+        if (list != null) {
+          addAll(soundsLike[i], list);
+        }
+      }
+      matches.or(soundsLike[i]);
+
+      if (candidates == null) {
+        candidates = matches;
+      } else {
+        candidates.and(matches);
+      }
+    }
+
+    String emailQuery = lower(email);
+    String phoneQuery = PhoneNumbers.digits(phone);
+    List<Scored> scored = new ArrayList<>();
+    for (int docId = candidates.nextSetBit(0); docId >= 0; docId = candidates.nextSetBit(docId + 1)) {
+      ContactResponse contact = docs.get(docId);
+      if (contact == null
+          || !matches(contact.getEmail(), emailQuery)
+          || (phoneQuery != null && !PhoneNumbers.matches(contact.getPhone(), phoneQuery))) {
+        continue;
+      }
+
+      int doc = docId;
+      double score = Names.score(queryWords, Names.words(contact.getFirstName(), contact.getLastName()),
+          i -> soundsLike[i].get(doc));
+      if (score > 0) {
+        scored.add(new Scored(contact, score));
+      }
+    }
+
+    scored.sort(Comparator.comparingDouble(Scored::score).reversed()
+        .thenComparing(item -> item.contact().getFirstName(), Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(item -> item.contact().getId()));
+
+    List<ContactResponse> content = scored.stream()
+        .skip(offset)
+        .limit(limit)
+        .map(Scored::contact)
+        .toList();
+    return new Result(content, scored.size());
+  }
+
+  synchronized void put(ContactResponse contact) {
+    Integer docId = docIds.get(contact.getId());
+    if (docId == null) {
+      add(contact);
+      return;
+    }
+
+    // keep the doc id on update so the contact stays where it was in the results
+    unindex(docId, docs.get(docId));
+    docs.set(docId, contact);
+    index(docId, contact);
+    estimatedBytes += docBytes(contact);
+  }
+
+  // false when the contact is not in the index
+  synchronized boolean patch(String contactId, UnaryOperator<ContactResponse> patch) {
+    Integer docId = docIds.get(contactId);
+    if (docId == null) {
+      return false;
+    }
+
+    put(patch.apply(docs.get(docId)));
+    return true;
+  }
+
+  synchronized void remove(String contactId) {
+    Integer docId = docIds.remove(contactId);
+    if (docId == null) {
+      return;
+    }
+
+    unindex(docId, docs.get(docId));
+    docs.set(docId, null);
+    removed++;
+
+    if (removed > 1024 && removed > docIds.size()) {
+      compact();
+    }
+  }
+
+  private void add(ContactResponse contact) {
+    int docId = docs.size();
+    docs.add(contact);
+    docIds.put(contact.getId(), docId);
+    index(docId, contact);
+    estimatedBytes += docBytes(contact);
+  }
+
+  private void index(int docId, ContactResponse contact) {
+    indexField(NAME, docId, contact.getFirstName());
+    indexField(NAME, docId, contact.getLastName());
+    indexField(EMAIL, docId, contact.getEmail());
+    indexField(PHONE, docId, contact.getPhone());
+    nameTerms(contact).forEach(term -> names.add(term, docId));
+    for (String word : Set.copyOf(Names.words(contact.getFirstName(), contact.getLastName()))) {
+      for (String key : Names.phoneticKeys(word)) {
+        IntList list = phonetic.computeIfAbsent(key, ignored -> {
+          estimatedBytes += GRAM_BYTES;
+          return new IntList(1);
+        });
+        if (!list.contains(docId)) {
+          list.add(docId);
+          estimatedBytes += Integer.BYTES;
+        }
+      }
+    }
+  }
+
+  private void unindex(int docId, ContactResponse contact) {
+    estimatedBytes -= docBytes(contact);
+    unindexField(NAME, docId, contact.getFirstName());
+    unindexField(NAME, docId, contact.getLastName());
+    unindexField(EMAIL, docId, contact.getEmail());
+    unindexField(PHONE, docId, contact.getPhone());
+    nameTerms(contact).forEach(term -> names.remove(term, docId));
+    for (String word : Set.copyOf(Names.words(contact.getFirstName(), contact.getLastName()))) {
+      for (String key : Names.phoneticKeys(word)) {
+        IntList list = phonetic.get(key);
+        if (list != null && list.remove(docId)) {
+          estimatedBytes -= Integer.BYTES;
+          if (list.isEmpty()) {
+            phonetic.remove(key);
+            estimatedBytes -= GRAM_BYTES;
+          }
+        }
+      }
+    }
+  }
+
+  private void indexField(int field, int docId, String value) {
+    String text = key(field, value);
+    if (text == null) {
+      return;
+    }
+
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      IntList list = postings[field].get(gram(text, i));
+      if (list == null) {
+        list = new IntList();
+        postings[field].put(gram(text, i), list);
+        estimatedBytes += GRAM_BYTES;
+      }
+
+      if (!list.contains(docId)) {
+        list.add(docId);
+        estimatedBytes += Integer.BYTES;
+      }
+    }
+  }
+
+  private void unindexField(int field, int docId, String value) {
+    String text = key(field, value);
+    if (text == null) {
+      return;
+    }
+
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      long gram = gram(text, i);
+      IntList list = postings[field].get(gram);
+      if (list != null && list.remove(docId)) {
+        estimatedBytes -= Integer.BYTES;
+        if (list.isEmpty()) {
+          postings[field].remove(gram);
+          estimatedBytes -= GRAM_BYTES;
+        }
+      }
+    }
+  }
+
+  // null means no restriction yet, otherwise the doc ids that contain every gram of the query
+  private IntList narrow(IntList candidates, int field, String query) {
+    String text = key(field, query);
+    if (text == null || text.length() < GRAM) {
+      return candidates;
+    }
+
+    IntList result = candidates;
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      IntList list = postings[field].get(gram(text, i));
+      if (list == null) {
+        return new IntList(1);
+      }
+
+      result = result == null ? list : result.intersect(list);
+      if (result.isEmpty()) {
+        return result;
+      }
+    }
+    return result;
+  }
+
+  private void compact() {
+    List<ContactResponse> live = docs.stream().filter(Objects::nonNull).toList();
+    docs.clear();
+    docIds.clear();
+    for (Map<Long, IntList> map : postings) {
+      map.clear();
+    }
+    names = new NameTrie();
+    phonetic.clear();
+    estimatedBytes = 0;
+    removed = 0;
+    live.forEach(this::add);
+  }
+
+  // every word of the first and last name, plus the full name so a prefix with a space still matches
+  private static Set<String> nameTerms(ContactResponse contact) {
+    Set<String> terms = new HashSet<>();
+    StringBuilder fullName = new StringBuilder();
+    for (String part : new String[] { contact.getFirstName(), contact.getLastName() }) {
+      String text = lower(part);
+      if (text == null || text.isBlank()) {
+        continue;
+      }
+
+      for (String word : text.trim().split("\\s+")) {
+        terms.add(word);
+      }
+      if (fullName.length() > 0) {
+        fullName.append(' ');
+      }
+      fullName.append(text.trim());
+    }
+    terms.add(fullName.toString());
+    terms.remove("");
+    return terms;
+  }
+
+  private static void addAll(BitSet bits, IntList list) {
+    for (int i = 0; i < list.size(); i++) {
+      bits.set(list.get(i));
+    }
+  }
+
+  private static boolean matches(String value, String query) {
+    if (query == null) {
+      return true;
+    }
+    return value != null && value.toLowerCase(Locale.ROOT).contains(query);
+  }
+
+  private static String key(int field, String value) {
+    return field == PHONE ? PhoneNumbers.digits(value) : lower(value);
+  }
+
+  private static String lower(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
+  }
+
+  private static long gram(String text, int start) {
+    return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+  }
+
+  private static long docBytes(ContactResponse contact) {
+    return DOC_BYTES + length(contact.getId()) + length(contact.getFirstName()) + length(contact.getLastName())
+        + length(contact.getEmail()) + length(contact.getPhone());
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : 40 + value.length();
+  }
+
+  record Result(List<ContactResponse> content, int total) {
+  }
+
+  private record Scored(ContactResponse contact, double score) {
+  }
+}
@@ -217,10 +217,26 @@ public class BCrypt {
   static final int MIN_LOG_ROUNDS = 4;
   static final int MAX_LOG_ROUNDS = 31;
 
+  // Shared source of salt randomness, SecureRandom is thread-safe
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  // Engines are reused per thread so a hash does not allocate a fresh key schedule
+  private static final ThreadLocal<BCrypt> ENGINE = ThreadLocal.withInitial(BCrypt::new);
+
   // Expanded Blowfish key
-  private int P[];
+  private final int P[] = new int[P_orig.length];
+
+  private final int S[] = new int[S_orig.length];
+
+  // Scratch buffers reused between hashes
+  private final int cdata[] = new int[bf_crypt_ciphertext.length];
+
+  private final int lr[] = new int[2];
 
-  private int S[];
+  // Key material expanded once per hash instead of once per round
+  private final int passwordWords[] = new int[P_orig.length];
+
+  private final int saltWords[] = new int[P_orig.length];
 
   /**
    * Encode a byte array using bcrypt's slightly-modified base64 encoding scheme.
@@ -290,7 +306,6 @@ public class BCrypt {
    * @throws IllegalArgumentException if maxolen is invalid
    */
   static byte[] decode_base64(String s, int maxolen) throws IllegalArgumentException {
-    StringBuilder rs = new StringBuilder();
     int off = 0, slen = s.length(), olen = 0;
     byte ret[];
     byte c1, c2, c3, c4, o;
@@ -299,6 +314,7 @@ public class BCrypt {
       throw new IllegalArgumentException("Invalid maxolen");
     }
 
+    ret = new byte[maxolen];
     while (off < slen - 1 && olen < maxolen) {
       c1 = char64(s.charAt(off++));
       c2 = char64(s.charAt(off++));
@@ -307,7 +323,7 @@ public class BCrypt {
       }
       o = (byte) (c1 << 2);
       o |= (c2 & 0x30) >> 4;
-      rs.append((char) o);
+      ret[olen] = o;
       if (++olen >= maxolen || off >= slen) {
         break;
       }
@@ -317,22 +333,18 @@ public class BCrypt {
       }
       o = (byte) ((c2 & 0x0f) << 4);
       o |= (c3 & 0x3c) >> 2;
-      rs.append((char) o);
+      ret[olen] = o;
       if (++olen >= maxolen || off >= slen) {
         break;
       }
       c4 = char64(s.charAt(off++));
       o = (byte) ((c3 & 0x03) << 6);
       o |= c4;
-      rs.append((char) o);
+      ret[olen] = o;
       ++olen;
     }
 
-    ret = new byte[olen];
-    for (off = 0; off < olen; off++) {
-      ret[off] = (byte) rs.charAt(off);
-    }
-    return ret;
+    return olen == maxolen ? ret : Arrays.copyOf(ret, olen);
   }
 
   /**
@@ -342,123 +354,111 @@ public class BCrypt {
    * @param off the position in the array of the blocks
    */
   private void encipher(int lr[], int off) {
+    final int P[] = this.P, S[] = this.S;
     int i, n, l = lr[off], r = lr[off + 1];
 
-    l ^= this.P[0];
+    l ^= P[0];
     for (i = 0; i <= BLOWFISH_NUM_ROUNDS - 2;) {
       // Feistel substitution on left word
-      n = this.S[(l >> 24) & 0xff];
-      n += this.S[0x100 | ((l >> 16) & 0xff)];
-      n ^= this.S[0x200 | ((l >> 8) & 0xff)];
-      n += this.S[0x300 | (l & 0xff)];
-      r ^= n ^ this.P[++i];
+      n = S[(l >> 24) & 0xff];
+      n += S[0x100 | ((l >> 16) & 0xff)];
+      n ^= S[0x200 | ((l >> 8) & 0xff)];
+      n += S[0x300 | (l & 0xff)];
+      r ^= n ^ P[++i];
 
       // Feistel substitution on right word
-      n = this.S[(r >> 24) & 0xff];
-      n += this.S[0x100 | ((r >> 16) & 0xff)];
-      n ^= this.S[0x200 | ((r >> 8) & 0xff)];
-      n += this.S[0x300 | (r & 0xff)];
-      l ^= n ^ this.P[++i];
+      n = S[(r >> 24) & 0xff];
+      n += S[0x100 | ((r >> 16) & 0xff)];
+      n ^= S[0x200 | ((r >> 8) & 0xff)];
+      n += S[0x300 | (r & 0xff)];
+      l ^= n ^ P[++i];
     }
-    lr[off] = r ^ this.P[BLOWFISH_NUM_ROUNDS + 1];
+    lr[off] = r ^ P[BLOWFISH_NUM_ROUNDS + 1];
     lr[off + 1] = l;
   }
 
   /**
-   * Cycically extract a word of key material
+   * Expand the cyclic key stream into one word per P-array entry, once per
+   * hash. Every call of the original {@code key()} re-read exactly these words
+   * from the start of the stream.
    * 
-   * @param data  the string to extract the data from
-   * @param offp  a "pointer" (as a one-entry array) to the current offset into
-   *              data
-   * @param signp a "pointer" (as a one-entry array) to the cumulative flag for
-   *              non-benign sign extension
-   * @return correct and buggy next word of material from data as int[2]
+   * @param data         the string to extract the data from
+   * @param words        destination, one word per P-array entry
+   * @param sign_ext_bug true to implement the 2x bug
+   * @param safety       bit 16 is set when the safety measure is requested
+   * @return the value to xor into P[0] during the enhanced key schedule
    */
-  private static int[] streamtowords(byte data[], int offp[], int signp[]) {
-    int i;
-    int words[] = { 0, 0 };
-    int off = offp[0];
-    int sign = signp[0];
-
-    for (i = 0; i < 4; i++) {
-      words[0] = (words[0] << 8) | (data[off] & 0xff);
-      words[1] = (words[1] << 8) | data[off]; // sign extension bug
-      if (i > 0) {
-        sign |= words[1] & 0x80;
+  private static int expandwords(byte data[], int words[], boolean sign_ext_bug, int safety) {
+    int off = 0;
+    int sign = 0; // non-benign sign-extension flag
+    int diff = 0; // zero iff correct and buggy are same
+
+    for (int i = 0; i < words.length; i++) {
+      int correct = 0, buggy = 0;
+      for (int j = 0; j < 4; j++) {
+        correct = (correct << 8) | (data[off] & 0xff);
+        buggy = (buggy << 8) | data[off]; // sign extension bug
+        if (j > 0) {
+          sign |= buggy & 0x80;
+        }
+        off = (off + 1) % data.length;
       }
-      off = (off + 1) % data.length;
+      diff |= correct ^ buggy;
+      words[i] = sign_ext_bug ? buggy : correct;
     }
 
-    offp[0] = off;
-    signp[0] = sign;
-    return words;
-  }
-
-  /**
-   * Cycically extract a word of key material
-   * 
-   * @param data the string to extract the data from
-   * @param offp a "pointer" (as a one-entry array) to the current offset into
-   *             data
-   * @return the next word of material from data
-   */
-  private static int streamtoword(byte data[], int offp[]) {
-    int signp[] = { 0 };
-    return streamtowords(data, offp, signp)[0];
-  }
-
-  /**
-   * Cycically extract a word of key material, with sign-extension bug
-   * 
-   * @param data the string to extract the data from
-   * @param offp a "pointer" (as a one-entry array) to the current offset into
-   *             data
-   * @return the next word of material from data
-   */
-  private static int streamtoword_bug(byte data[], int offp[]) {
-    int signp[] = { 0 };
-    return streamtowords(data, offp, signp)[1];
+    /*
+     * At this point, "diff" is zero iff the correct and buggy algorithms produced
+     * exactly the same result. If so and if "sign" is non-zero, which indicates
+     * that
+     * there was a non-benign sign extension, this means that we have a collision
+     * between the correctly computed hash for this password and a set of passwords
+     * that could be supplied to the buggy algorithm. Our safety measure is meant to
+     * protect from such many-buggy to one-correct collisions, by deviating from the
+     * correct algorithm in such cases. Let's check for this.
+     */
+    diff |= diff >> 16; /* still zero iff exact match */
+    diff &= 0xffff; /* ditto */
+    diff += 0xffff; /* bit 16 set iff "diff" was non-zero (on non-match) */
+    sign <<= 9; /* move the non-benign sign extension flag to bit 16 */
+    sign &= ~diff & safety; /* action needed? */
+    return sign;
   }
 
   /**
    * Initialise the Blowfish key schedule
    */
   private void init_key() {
-    this.P = P_orig.clone();
-    this.S = S_orig.clone();
+    System.arraycopy(P_orig, 0, this.P, 0, P_orig.length);
+    System.arraycopy(S_orig, 0, this.S, 0, S_orig.length);
   }
 
   /**
    * Key the Blowfish cipher
    * 
-   * @param key          an array containing the key
-   * @param sign_ext_bug true to implement the 2x bug
-   * @param safety       bit 16 is set when the safety measure is requested
+   * @param words the key stream, already expanded by expandwords
    */
-  private void key(byte key[], boolean sign_ext_bug, int safety) {
+  private void key(int words[]) {
+    final int P[] = this.P, S[] = this.S, lr[] = this.lr;
     int i;
-    int koffp[] = { 0 };
-    int lr[] = { 0, 0 };
-    int plen = this.P.length, slen = this.S.length;
+    int plen = P.length, slen = S.length;
 
     for (i = 0; i < plen; i++) {
-      if (!sign_ext_bug) {
-        this.P[i] = this.P[i] ^ streamtoword(key, koffp);
-      } else {
-        this.P[i] = this.P[i] ^ streamtoword_bug(key, koffp);
-      }
+      P[i] ^= words[i];
     }
 
+    lr[0] = 0;
+    lr[1] = 0;
     for (i = 0; i < plen; i += 2) {
       encipher(lr, 0);
-      this.P[i] = lr[0];
-      this.P[i + 1] = lr[1];
+      P[i] = lr[0];
+      P[i + 1] = lr[1];
     }
 
     for (i = 0; i < slen; i += 2) {
       encipher(lr, 0);
-      this.S[i] = lr[0];
-      this.S[i + 1] = lr[1];
+      S[i] = lr[0];
+      S[i + 1] = lr[1];
     }
   }
 
@@ -468,43 +468,17 @@ public class BCrypt {
    * Future-Adaptable Password Scheme"
    * https://www.openbsd.org/papers/bcrypt-paper.ps
    * 
-   * @param data         salt information
-   * @param key          password information
-   * @param sign_ext_bug true to implement the 2x bug
-   * @param safety       bit 16 is set when the safety measure is requested
+   * @param sign the safety deviation returned by expandwords for the password
    */
-  private void ekskey(byte data[], byte key[], boolean sign_ext_bug, int safety) {
-    int i;
-    int koffp[] = { 0 }, doffp[] = { 0 };
-    int lr[] = { 0, 0 };
-    int plen = this.P.length, slen = this.S.length;
-    int signp[] = { 0 }; // non-benign sign-extension flag
-    int diff = 0; // zero iff correct and buggy are same
+  private void ekskey(int sign) {
+    final int P[] = this.P, S[] = this.S, lr[] = this.lr, key[] = this.passwordWords, data[] = this.saltWords;
+    int i, d = 0;
+    int plen = P.length, slen = S.length;
 
     for (i = 0; i < plen; i++) {
-      int words[] = streamtowords(key, koffp, signp);
-      diff |= words[0] ^ words[1];
-      this.P[i] = this.P[i] ^ words[sign_ext_bug ? 1 : 0];
+      P[i] ^= key[i];
     }
 
-    int sign = signp[0];
-
-    /*
-     * At this point, "diff" is zero iff the correct and buggy algorithms produced
-     * exactly the same result. If so and if "sign" is non-zero, which indicates
-     * that
-     * there was a non-benign sign extension, this means that we have a collision
-     * between the correctly computed hash for this password and a set of passwords
-     * that could be supplied to the buggy algorithm. Our safety measure is meant to
-     * protect from such many-buggy to one-correct collisions, by deviating from the
-     * correct algorithm in such cases. Let's check for this.
-     */
-    diff |= diff >> 16; /* still zero iff exact match */
-    diff &= 0xffff; /* ditto */
-    diff += 0xffff; /* bit 16 set iff "diff" was non-zero (on non-match) */
-    sign <<= 9; /* move the non-benign sign extension flag to bit 16 */
-    sign &= ~diff & safety; /* action needed? */
-
     /*
      * If we have determined that we need to deviate from the correct algorithm,
      * flip
@@ -519,22 +493,25 @@ public class BCrypt {
      * that could be directly specified by a password to the buggy algorithm (and to
      * the fully correct one as well, but that's a side-effect).
      */
-    this.P[0] ^= sign;
+    P[0] ^= sign;
 
+    // the 16 byte salt is exactly 4 words, so its key stream repeats every 4 words
+    lr[0] = 0;
+    lr[1] = 0;
     for (i = 0; i < plen; i += 2) {
-      lr[0] ^= streamtoword(data, doffp);
-      lr[1] ^= streamtoword(data, doffp);
+      lr[0] ^= data[d++ & 3];
+      lr[1] ^= data[d++ & 3];
       encipher(lr, 0);
-      this.P[i] = lr[0];
-      this.P[i + 1] = lr[1];
+      P[i] = lr[0];
+      P[i + 1] = lr[1];
     }
 
     for (i = 0; i < slen; i += 2) {
-      lr[0] ^= streamtoword(data, doffp);
-      lr[1] ^= streamtoword(data, doffp);
+      lr[0] ^= data[d++ & 3];
+      lr[1] ^= data[d++ & 3];
       encipher(lr, 0);
-      this.S[i] = lr[0];
-      this.S[i + 1] = lr[1];
+      S[i] = lr[0];
+      S[i + 1] = lr[1];
     }
   }
 
@@ -558,7 +535,7 @@ public class BCrypt {
    */
   private byte[] crypt_raw(byte password[], byte salt[], int log_rounds, boolean sign_ext_bug, int safety,
       boolean for_check) {
-    int cdata[] = bf_crypt_ciphertext.clone();
+    final int cdata[] = this.cdata;
     int clen = cdata.length;
 
     long rounds;
@@ -581,12 +558,18 @@ public class BCrypt {
       throw new IllegalArgumentException("Bad salt length");
     }
 
+    int sign = expandwords(password, passwordWords, sign_ext_bug, safety);
+    expandwords(salt, saltWords, false, 0);
+
     init_key();
-    ekskey(salt, password, sign_ext_bug, safety);
-    for (int i = 0; i < rounds; i++) {
-      key(password, sign_ext_bug, safety);
-      key(salt, false, safety);
+    ekskey(sign);
+    for (long i = 0; i < rounds; i++) {
+      key(passwordWords);
+      key(saltWords);
     }
+    Arrays.fill(passwordWords, 0);
+
+    System.arraycopy(bf_crypt_ciphertext, 0, cdata, 0, clen);
 
     for (int i = 0; i < 64; i++) {
       for (int j = 0; j < (clen >> 1); j++) {
@@ -642,7 +625,7 @@ public class BCrypt {
     byte saltb[], hashed[];
     char minor = (char) 0;
     int rounds, off;
-    StringBuilder rs = new StringBuilder();
+    StringBuilder rs = new StringBuilder(60);
 
     // Enforce max length for new passwords only
     if (!for_check && passwordb.length > 72) {
@@ -688,7 +671,7 @@ public class BCrypt {
       passwordb = Arrays.copyOf(passwordb, passwordb.length + 1);
     }
 
-    B = new BCrypt();
+    B = ENGINE.get();
     hashed = B.crypt_raw(passwordb, saltb, rounds, minor == 'x', minor == 'a' ? 0x10000 : 0, for_check);
 
     rs.append("$2");
@@ -718,7 +701,7 @@ public class BCrypt {
    * @exception IllegalArgumentException if prefix or log_rounds is invalid
    */
   public static String gensalt(String prefix, int log_rounds, SecureRandom random) throws IllegalArgumentException {
-    StringBuilder rs = new StringBuilder();
+    StringBuilder rs = new StringBuilder(29);
     byte rnd[] = new byte[BCRYPT_SALT_LEN];
 
     if (!prefix.startsWith("$2")
@@ -754,7 +737,7 @@ public class BCrypt {
    * @exception IllegalArgumentException if prefix or log_rounds is invalid
    */
   public static String gensalt(String prefix, int log_rounds) throws IllegalArgumentException {
-    return gensalt(prefix, log_rounds, new SecureRandom());
+    return gensalt(prefix, log_rounds, RANDOM);
   }
 
   /**
@@ -781,7 +764,7 @@ public class BCrypt {
    * @exception IllegalArgumentException if log_rounds is invalid
    */
   public static String gensalt(int log_rounds) throws IllegalArgumentException {
-    return gensalt(log_rounds, new SecureRandom());
+    return gensalt(log_rounds, RANDOM);
   }
 
   public static String gensalt(String prefix) {
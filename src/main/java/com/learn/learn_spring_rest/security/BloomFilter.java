@@ -0,0 +1,85 @@
+package com.learn.learn_spring_rest.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe bloom filter over strings. A {@code false} from
+ * {@link #mightContain(String)} is definite, a {@code true} may be a false
+ * positive with roughly the probability reported by {@link #expectedFpp()}.
+ */
+public class BloomFilter {
+
+  private final AtomicLongArray bits;
+
+  private final long bitCount;
+
+  private final int hashCount;
+
+  private final AtomicLong insertions = new AtomicLong();
+
+  public BloomFilter(long expectedInsertions, double fpp) {
+    long n = Math.max(1, expectedInsertions);
+    long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = (long) words << 6;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+  }
+
+  public void put(String value) {
+    long h1 = hash(value, 0x9E3779B97F4A7C15L);
+    long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+
+    for (int i = 0; i < hashCount; i++) {
+      long index = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      int word = (int) (index >>> 6);
+      long mask = 1L << index;
+
+      long current = bits.get(word);
+      while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+        current = bits.get(word);
+      }
+    }
+    insertions.incrementAndGet();
+  }
+
+  public boolean mightContain(String value) {
+    long h1 = hash(value, 0x9E3779B97F4A7C15L);
+    long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+
+    for (int i = 0; i < hashCount; i++) {
+      long index = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long insertions() {
+    return insertions.get();
+  }
+
+  public double expectedFpp() {
+    return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+  }
+
+  private static long hash(String value, long seed) {
+    long h = seed;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001B3L;
+      h = Long.rotateLeft(h, 27);
+    }
+
+    // murmur3 finalizer
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,12 @@
+package com.learn.learn_spring_rest.security;
+
+/**
+ * What the token cache keeps of a session. Immutable, so a cached entry can be
+ * handed to concurrent requests; a renewal replaces it with a new one.
+ */
+public record CachedSession(String token, String username, Long expiredAt) {
+
+  public CachedSession withExpiredAt(long expiredAt) {
+    return new CachedSession(token, username, expiredAt);
+  }
+}
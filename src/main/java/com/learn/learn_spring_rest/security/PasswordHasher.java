@@ -0,0 +1,202 @@
+package com.learn.learn_spring_rest.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs BCrypt on a dedicated pool sized to the cores with a bounded queue.
+ * When the queue is full the caller gets a 503 straight away instead of
+ * piling up request threads behind password hashing.
+ *
+ * <p>The BCrypt cost is calibrated once at startup: the largest cost whose
+ * hash stays within the target latency on this machine, clamped between the
+ * configured minimum and maximum. Calibration differs between machines, so a
+ * fleet should pin the cost it settled on with {@code app.auth.hashing.cost}.
+ * Hashes are only ever rehashed upwards.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.auth.hashing.threads:0}")
+  private int threads;
+
+  @Value("${app.auth.hashing.queue-capacity:64}")
+  private int queueCapacity;
+
+  @Value("${app.auth.hashing.timeout:PT10S}")
+  private Duration timeout;
+
+  @Value("${app.auth.hashing.target-latency:PT0.25S}")
+  private Duration targetLatency;
+
+  // a fixed cost, 0 calibrates on startup
+  @Value("${app.auth.hashing.cost:0}")
+  private int fixedCost;
+
+  @Value("${app.auth.hashing.min-cost:10}")
+  private int minCost;
+
+  @Value("${app.auth.hashing.max-cost:16}")
+  private int maxCost;
+
+  private ThreadPoolExecutor executor;
+
+  private Timer hashTimer;
+
+  private Timer verifyTimer;
+
+  private volatile int cost;
+
+  @PostConstruct
+  void init() {
+    if (fixedCost > 0) {
+      cost = fixedCost;
+      log.info("BCrypt cost fixed at {}", cost);
+    } else {
+      cost = calibrate();
+      log.info("BCrypt cost calibrated to {} for a target of {} ms", cost, targetLatency.toMillis());
+    }
+
+    Gauge.builder("auth.password.hash.cost", this, PasswordHasher::getCost)
+        .description("BCrypt cost factor fixed or picked at startup")
+        .register(meterRegistry);
+    hashTimer = Timer.builder("auth.password.hash")
+        .tag("operation", "hash")
+        .register(meterRegistry);
+    verifyTimer = Timer.builder("auth.password.hash")
+        .tag("operation", "verify")
+        .register(meterRegistry);
+
+    int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new HasherThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+    new ExecutorServiceMetrics(executor, "passwordHasher", Tags.empty()).bindTo(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  public int getCost() {
+    return cost;
+  }
+
+  public String hash(String password) {
+    int logRounds = cost;
+    return submit(() -> hashTimer.recordCallable(() -> BCrypt.hashpw(password, BCrypt.gensalt(logRounds))));
+  }
+
+  public boolean verify(String password, String hashed) {
+    return submit(() -> verifyTimer.recordCallable(() -> BCrypt.checkpw(password, hashed)));
+  }
+
+  // never downwards: an instance that calibrated lower must not undo a stronger hash
+  public boolean needsRehash(String hashed) {
+    return costOf(hashed) < cost;
+  }
+
+  static int costOf(String hashed) {
+    if (hashed == null || hashed.length() < 7 || !hashed.startsWith("$2")) {
+      return -1;
+    }
+
+    int offset = hashed.charAt(2) == '$' ? 3 : 4;
+    try {
+      return Integer.parseInt(hashed.substring(offset, offset + 2));
+    } catch (NumberFormatException exception) {
+      return -1;
+    }
+  }
+
+  // every extra round doubles the work, so one timed hash at the floor is enough to
+  // extrapolate the rest; the first hash only warms up the code path
+  private int calibrate() {
+    if (minCost >= maxCost) {
+      return minCost;
+    }
+
+    BCrypt.hashpw("calibration", BCrypt.gensalt(4));
+
+    long elapsed = Long.MAX_VALUE;
+    for (int i = 0; i < 2; i++) {
+      long start = System.nanoTime();
+      BCrypt.hashpw("calibration", BCrypt.gensalt(minCost));
+      elapsed = Math.min(elapsed, System.nanoTime() - start);
+    }
+
+    int calibrated = minCost;
+    long target = targetLatency.toNanos();
+    while (calibrated < maxCost && elapsed * 2 <= target) {
+      elapsed *= 2;
+      calibrated++;
+    }
+    return calibrated;
+  }
+
+  private <T> T submit(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException exception) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+    }
+
+    try {
+      return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+    } catch (TimeoutException exception) {
+      future.cancel(true);
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+    } catch (ExecutionException exception) {
+      if (exception.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(exception.getCause());
+    }
+  }
+
+  private static class HasherThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.learn.learn_spring_rest.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Slides session expiry forward while a token is in use. Renewals are only
+ * applied to the cached session on the request path and written to the
+ * database in batches by a background flush, so repeated requests with the
+ * same token collapse into a single update.
+ */
+@Component
+public class SessionRenewalWriter {
+
+  private static final String UPDATE_SQL = "UPDATE sessions SET expired_at = ? WHERE token = ? AND expired_at < ?";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Value("${app.auth.token-ttl:30d}")
+  private Duration tokenTtl;
+
+  @Value("${app.auth.token-renew-before:15d}")
+  private Duration renewBefore;
+
+  @Value("${app.auth.token-renewal.batch-size:500}")
+  private int batchSize;
+
+  private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+  public void renewIfNeeded(CachedSession session) {
+    long now = System.currentTimeMillis();
+    if (session.expiredAt() - now > renewBefore.toMillis()) {
+      return;
+    }
+
+    long expiredAt = now + tokenTtl.toMillis();
+    tokenCache.put(session.withExpiredAt(expiredAt));
+    pending.merge(session.token(), expiredAt, Math::max);
+  }
+
+  @PreDestroy
+  @Scheduled(fixedDelayString = "${app.auth.token-renewal.flush-interval:PT30S}")
+  public void flush() {
+    List<Object[]> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+
+    Iterator<Map.Entry<String, Long>> iterator = pending.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      // only drop the entry if no newer renewal raced in while we were draining
+      if (pending.remove(entry.getKey(), entry.getValue())) {
+        batch.add(new Object[] { entry.getValue(), entry.getKey(), entry.getValue() });
+      }
+
+      if (batch.size() >= batchSize) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+        batch.clear();
+      }
+    }
+
+    if (!batch.isEmpty()) {
+      jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+    }
+  }
+}
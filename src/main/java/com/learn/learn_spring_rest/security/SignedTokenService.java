@@ -0,0 +1,119 @@
+package com.learn.learn_spring_rest.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed tokens of the form
+ * {@code base64url(username:expiredAt:sessionId).base64url(signature)}, so
+ * the caller can be identified without loading the user. The session still
+ * has to exist, which the resolver checks through the token cache, so logout
+ * and refresh revoke a token durably by deleting its session row.
+ */
+@Slf4j
+@Component
+public class SignedTokenService {
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  @Value("${app.auth.token-mode:opaque}")
+  private String tokenMode;
+
+  @Value("${app.auth.signed-token.secret:}")
+  private String secret;
+
+  private SecretKeySpec key;
+
+  private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+  @PostConstruct
+  void init() {
+    byte[] keyBytes;
+    if (StringUtils.hasText(secret)) {
+      keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+    } else {
+      keyBytes = new byte[32];
+      RANDOM.nextBytes(keyBytes);
+      if (isEnabled()) {
+        log.warn("app.auth.signed-token.secret is not set, signed tokens will not survive a restart");
+      }
+    }
+    key = new SecretKeySpec(keyBytes, ALGORITHM);
+  }
+
+  public boolean isEnabled() {
+    return "signed".equalsIgnoreCase(tokenMode);
+  }
+
+  public String issue(String username, long expiredAt, String sessionId) {
+    String claims = username + ":" + expiredAt + ":" + sessionId;
+    String payload = ENCODER.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+    return payload + "." + ENCODER.encodeToString(sign(payload));
+  }
+
+  public Optional<SignedToken> verify(String token) {
+    int dot = token.indexOf('.');
+    if (dot <= 0 || dot == token.length() - 1) {
+      return Optional.empty();
+    }
+
+    String payload = token.substring(0, dot);
+    try {
+      byte[] signature = DECODER.decode(token.substring(dot + 1));
+      if (!MessageDigest.isEqual(sign(payload), signature)) {
+        return Optional.empty();
+      }
+
+      String claims = new String(DECODER.decode(payload), StandardCharsets.UTF_8);
+      int sessionSeparator = claims.lastIndexOf(':');
+      int expirySeparator = claims.lastIndexOf(':', sessionSeparator - 1);
+      if (expirySeparator <= 0) {
+        return Optional.empty();
+      }
+
+      String username = claims.substring(0, expirySeparator);
+      long expiredAt = Long.parseLong(claims.substring(expirySeparator + 1, sessionSeparator));
+      String sessionId = claims.substring(sessionSeparator + 1);
+      return Optional.of(new SignedToken(username, expiredAt, sessionId));
+    } catch (IllegalArgumentException exception) {
+      return Optional.empty();
+    }
+  }
+
+  private byte[] sign(String payload) {
+    return mac.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private Mac newMac() {
+    try {
+      Mac instance = Mac.getInstance(ALGORITHM);
+      instance.init(key);
+      return instance;
+    } catch (GeneralSecurityException exception) {
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  public record SignedToken(String username, long expiredAt, String sessionId) {
+  }
+}
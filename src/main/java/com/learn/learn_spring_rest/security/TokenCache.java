@@ -0,0 +1,93 @@
+package com.learn.learn_spring_rest.security;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Bounded token to session cache used by the argument resolver, so an
+ * authenticated request does not need a database round trip. Entries never
+ * outlive the session itself.
+ *
+ * <p>Only an immutable snapshot of the session is cached; the user entity is
+ * looked up per request, so concurrent requests never share a mutable
+ * entity.
+ */
+@Component
+public class TokenCache {
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.auth.token-cache.maximum-size:10000}")
+  private long maximumSize;
+
+  @Value("${app.auth.token-cache.ttl:5m}")
+  private Duration ttl;
+
+  private Cache<String, CachedSession> cache;
+
+  @PostConstruct
+  void init() {
+    cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new TokenExpiry())
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "userTokenCache");
+  }
+
+  public CachedSession get(String token, Function<String, CachedSession> loader) {
+    return cache.get(token, loader);
+  }
+
+  public void put(CachedSession session) {
+    cache.put(session.token(), session);
+  }
+
+  public void invalidate(String token) {
+    if (Objects.nonNull(token)) {
+      cache.invalidate(token);
+    }
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private class TokenExpiry implements Expiry<String, CachedSession> {
+
+    @Override
+    public long expireAfterCreate(String token, CachedSession session, long currentTime) {
+      if (Objects.isNull(session.expiredAt())) {
+        return 0;
+      }
+
+      long remaining = session.expiredAt() - System.currentTimeMillis();
+      return Math.max(0, Math.min(ttl.toNanos(), Duration.ofMillis(remaining).toNanos()));
+    }
+
+    @Override
+    public long expireAfterUpdate(String token, CachedSession session, long currentTime, long currentDuration) {
+      return expireAfterCreate(token, session, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String token, CachedSession session, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
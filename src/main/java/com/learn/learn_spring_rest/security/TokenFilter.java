@@ -0,0 +1,135 @@
+package com.learn.learn_spring_rest.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.learn.learn_spring_rest.repository.SessionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Bloom filter of every issued opaque token, consulted before the token
+ * lookup so that random or forged tokens are rejected without a query.
+ * Logged out tokens cannot be removed from the filter, they are dropped on
+ * the next periodic rebuild.
+ *
+ * <p>A token is only put once its session row is committed, so a rebuild
+ * either sees the row in its snapshot or the put sees the filter being
+ * built; either way the new filter has the token.
+ */
+@Component
+public class TokenFilter {
+
+  @Autowired
+  private SessionRepository sessionRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${app.auth.token-filter.enabled:false}")
+  private boolean enabled;
+
+  @Value("${app.auth.token-filter.expected-insertions:100000}")
+  private long expectedInsertions;
+
+  @Value("${app.auth.token-filter.fpp:0.01}")
+  private double fpp;
+
+  private volatile BloomFilter current;
+
+  private volatile BloomFilter building;
+
+  private final AtomicLong stale = new AtomicLong();
+
+  private Counter rejected;
+
+  @PostConstruct
+  void init() {
+    Gauge.builder("auth.token.filter.fpp", this, filter -> filter.current == null ? 1.0 : filter.current.expectedFpp())
+        .description("Expected false positive rate of the issued token filter")
+        .register(meterRegistry);
+    Gauge.builder("auth.token.filter.stale", stale, AtomicLong::get)
+        .description("Logged out tokens still present in the issued token filter")
+        .register(meterRegistry);
+    rejected = Counter.builder("auth.token.filter.rejected")
+        .description("Tokens rejected by the issued token filter without a database lookup")
+        .register(meterRegistry);
+  }
+
+  public boolean mightContain(String token) {
+    BloomFilter filter = current;
+    if (!enabled || filter == null || filter.mightContain(token)) {
+      return true;
+    }
+
+    rejected.increment();
+    return false;
+  }
+
+  public void put(String token) {
+    if (!enabled) {
+      return;
+    }
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          add(token);
+        }
+      });
+      return;
+    }
+
+    add(token);
+  }
+
+  public void remove(String token) {
+    if (enabled && token != null) {
+      stale.incrementAndGet();
+    }
+  }
+
+  // building before current: rebuild publishes current before clearing building, so a put that
+  // finds no build in progress either comes before the snapshot or sees the new filter as current
+  private void add(String token) {
+    BloomFilter next = building;
+    if (next != null) {
+      next.put(token);
+    }
+
+    BloomFilter filter = current;
+    if (filter != null && filter != next) {
+      filter.put(token);
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(fixedDelayString = "${app.auth.token-filter.rebuild-interval:PT1H}", initialDelayString = "${app.auth.token-filter.rebuild-interval:PT1H}")
+  public synchronized void rebuild() {
+    if (!enabled) {
+      return;
+    }
+
+    BloomFilter filter = new BloomFilter(expectedInsertions, fpp);
+    building = filter;
+    long staleBefore = stale.get();
+
+    sessionRepository.findAllTokens().forEach(filter::put);
+
+    current = filter;
+    building = null;
+    stale.addAndGet(-staleBefore);
+  }
+}
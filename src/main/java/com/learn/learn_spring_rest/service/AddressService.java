@@ -1,6 +1,9 @@
 package com.learn.learn_spring_rest.service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +17,9 @@ import com.learn.learn_spring_rest.entity.Contact;
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.AddressResponse;
 import com.learn.learn_spring_rest.model.CreateAddressRequest;
+import com.learn.learn_spring_rest.model.PatchAddressRequest;
 import com.learn.learn_spring_rest.model.UpdateAddressRequest;
+import com.learn.learn_spring_rest.model.VersionResponse;
 import com.learn.learn_spring_rest.repository.AddressRepository;
 import com.learn.learn_spring_rest.repository.ContactRepository;
 
@@ -30,11 +35,15 @@ public class AddressService {
   @Autowired
   private ValidationService validationService;
 
+  @Autowired
+  private ContactService contactService;
+
   @Transactional
   public AddressResponse create(User user, CreateAddressRequest request) {
     validationService.validate(request);
 
-    Contact contact = contactRepository.findFirstByUserAndId(user, request.getContactId())
+    // locked with a version bump: the contact version also tags its address list
+    Contact contact = contactRepository.findLockedByUserAndId(user, request.getContactId())
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
 
     Address address = new Address();
@@ -47,6 +56,7 @@ public class AddressService {
     address.setPostalCode(request.getPostalCode());
 
     addressRepository.save(address);
+    contactService.addressesChanged(user, contact);
 
     return toAddressResponse(address);
   }
@@ -67,7 +77,7 @@ public class AddressService {
   public AddressResponse update(User user, UpdateAddressRequest request) {
     validationService.validate(request);
 
-    Contact contact = contactRepository.findById(request.getContactId())
+    Contact contact = contactRepository.findLockedByUserAndId(user, request.getContactId())
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
 
     Address address = addressRepository.findFirstByContactAndId(contact, request.getAddressId())
@@ -78,21 +88,73 @@ public class AddressService {
     address.setProvince(request.getProvince());
     address.setCountry(request.getCountry());
     address.setPostalCode(request.getPostalCode());
-    addressRepository.save(address);
+    // flushed now so the response carries the incremented version
+    addressRepository.saveAndFlush(address);
+    contactService.addressesChanged(user, contact);
 
     return toAddressResponse(address);
   }
 
+  // two UPDATEs and no SELECT: the contact version first, which also checks the contact belongs to
+  // the user and serializes writes to its addresses, then the fields in the request at the address
+  // version the client read
+  @Transactional
+  public VersionResponse patch(User user, PatchAddressRequest request) {
+    validationService.validate(request);
+
+    if (request.getFields().isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one field is required");
+    }
+    if (request.getFields().contains("country") && Objects.isNull(request.getCountry())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "country: must not be blank");
+    }
+
+    Map<String, String> changes = new LinkedHashMap<>();
+    for (String field : request.getFields()) {
+      switch (field) {
+        case "street" -> changes.put(field, request.getStreet());
+        case "city" -> changes.put(field, request.getCity());
+        case "province" -> changes.put(field, request.getProvince());
+        case "country" -> changes.put(field, request.getCountry());
+        default -> changes.put(field, request.getPostalCode());
+      }
+    }
+
+    if (contactRepository.incrementVersion(user.getUsername(), request.getContactId()) == 0) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!");
+    }
+    if (addressRepository.patch(request.getContactId(), request.getAddressId(), request.getVersion(), changes) == 0) {
+      long current = version(user, request.getContactId(), request.getAddressId());
+      throw new ResponseStatusException(HttpStatus.CONFLICT,
+          "Address has been modified, current version is " + current);
+    }
+
+    contactService.addressPatched(user, request.getContactId());
+    return VersionResponse.builder().id(request.getAddressId()).version(request.getVersion() + 1).build();
+  }
+
   @Transactional
   public void remove(User user, String contactId, String addressId) {
 
-    Contact contact = contactRepository.findById(contactId)
+    Contact contact = contactRepository.findLockedByUserAndId(user, contactId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
 
     Address address = addressRepository.findFirstByContactAndId(contact, addressId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found!"));
 
     addressRepository.delete(address);
+    contactService.addressesChanged(user, contact);
+  }
+
+  // for conditional requests, answered without loading the address
+  public long version(User user, String contactId, String addressId) {
+    return addressRepository.findVersion(user.getUsername(), contactId, addressId)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address not found!"));
+  }
+
+  // the address list has no version of its own, the contact version changes with every address write
+  public long listVersion(User user, String contactId) {
+    return contactService.version(user, contactId);
   }
 
   private AddressResponse toAddressResponse(Address address) {
@@ -103,15 +165,20 @@ public class AddressService {
         .province(address.getProvince())
         .country(address.getCountry())
         .postalCode(address.getPostalCode())
+        .version(address.getVersion())
         .build();
   }
 
+  // the addresses with the version of the contact they were read with, which tags the list
+  public record AddressList(List<AddressResponse> addresses, long contactVersion) {
+  }
+
   @Transactional(readOnly = true)
-  public List<AddressResponse> list(User user, String contactId) {
+  public AddressList list(User user, String contactId) {
     Contact contact = contactRepository.findById(contactId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
 
     List<Address> addresses = addressRepository.findAllByContact(contact);
-    return addresses.stream().map(this::toAddressResponse).toList();
+    return new AddressList(addresses.stream().map(this::toAddressResponse).toList(), contact.getVersion());
   }
 }
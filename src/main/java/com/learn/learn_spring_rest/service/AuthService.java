@@ -1,55 +1,187 @@
 package com.learn.learn_spring_rest.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.learn.learn_spring_rest.entity.Session;
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.LoginUserRequest;
+import com.learn.learn_spring_rest.model.RefreshTokenRequest;
 import com.learn.learn_spring_rest.model.TokenResponse;
+import com.learn.learn_spring_rest.repository.SessionRepository;
 import com.learn.learn_spring_rest.repository.UserRepository;
-import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.PasswordHasher;
+import com.learn.learn_spring_rest.security.SignedTokenService;
+import com.learn.learn_spring_rest.security.TokenCache;
+import com.learn.learn_spring_rest.security.TokenFilter;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
 public class AuthService {
 
+  private static final SecureRandom RANDOM = new SecureRandom();
+
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private SessionRepository sessionRepository;
+
   @Autowired
   private ValidationService validationService;
 
-  @Transactional
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private SignedTokenService signedTokenService;
+
+  @Autowired
+  private TokenFilter tokenFilter;
+
+  @Autowired
+  private PasswordHasher passwordHasher;
+
+  @Value("${app.auth.token-ttl:30d}")
+  private Duration tokenTtl;
+
+  @Value("${app.auth.refresh-token-ttl:90d}")
+  private Duration refreshTokenTtl;
+
+  // not @Transactional: the user read and the session insert each run in their own short
+  // transaction so no connection is held while the password is checked
   public TokenResponse login(LoginUserRequest request) {
     validationService.validate(request);
 
     User user = userRepository.findById(request.getUsername())
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or Password wrong!"));
 
-    if (BCrypt.checkpw(request.getPassword(), user.getPassword())) {
-      user.setToken(UUID.randomUUID().toString());
-      user.setTokenExpiredAt(next30Days());
-      userRepository.save(user);
-      return TokenResponse.builder().token(user.getToken()).expiredAt(user.getTokenExpiredAt()).build();
+    if (passwordHasher.verify(request.getPassword(), user.getPassword())) {
+      rehashIfNeeded(user, request.getPassword());
+      return createSession(user);
     } else {
       throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or Password wrong!");
     }
   }
 
   @Transactional
-  public void logout(User user) {
-    user.setToken(null);
-    user.setTokenExpiredAt(null);
+  public TokenResponse refresh(RefreshTokenRequest request) {
+    validationService.validate(request);
+
+    // the refresh token is only ever stored and looked up as its sha-256 digest
+    String refreshTokenHash = hashRefreshToken(request.getRefreshToken());
+    Session session = sessionRepository.findFirstByRefreshTokenHash(refreshTokenHash)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token invalid"));
+
+    if (session.getRefreshExpiredAt() == null || session.getRefreshExpiredAt() < System.currentTimeMillis()) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token expired");
+    }
+
+    // refresh tokens are single use, the old session and its access token go away; a concurrent
+    // refresh that found the same row deletes nothing and gets no new session
+    if (sessionRepository.deleteByTokenAndRefreshTokenHash(session.getToken(), refreshTokenHash) != 1) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token invalid");
+    }
+    tokenCache.invalidate(session.getToken());
+    tokenFilter.remove(session.getToken());
+
+    return createSession(session.getUser());
+  }
+
+  @Transactional
+  public void logout(User user, String token) {
+    if (signedTokenService.isEnabled()) {
+      signedTokenService.verify(token).ifPresent(signedToken -> deleteSession(signedToken.sessionId()));
+      return;
+    }
 
-    userRepository.save(user);
+    deleteSession(token);
+  }
+
+  @Transactional
+  @Scheduled(fixedDelayString = "${app.auth.session-cleanup-interval:PT1H}")
+  public void deleteExpiredSessions() {
+    sessionRepository.deleteAllExpired(System.currentTimeMillis());
   }
 
-  private Long next30Days() {
-    return System.currentTimeMillis() + (1000 * 16 * 24 * 30);
+  private TokenResponse createSession(User user) {
+    String refreshToken = newRefreshToken();
+
+    Session session = new Session();
+    session.setToken(UUID.randomUUID().toString());
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + tokenTtl.toMillis());
+    session.setCreatedAt(System.currentTimeMillis());
+    session.setRefreshTokenHash(hashRefreshToken(refreshToken));
+    session.setRefreshExpiredAt(System.currentTimeMillis() + refreshTokenTtl.toMillis());
+    sessionRepository.save(session);
+
+    String token = session.getToken();
+    if (signedTokenService.isEnabled()) {
+      token = signedTokenService.issue(user.getUsername(), session.getExpiredAt(), session.getToken());
+    } else {
+      tokenFilter.put(token);
+    }
+
+    return TokenResponse.builder()
+        .token(token)
+        .expiredAt(session.getExpiredAt())
+        .refreshToken(refreshToken)
+        .refreshExpiredAt(session.getRefreshExpiredAt())
+        .build();
+  }
+
+  // the plain password is only available here, so this is where hashes made with an
+  // older cost get upgraded; a busy hasher just leaves it for the next login
+  private void rehashIfNeeded(User user, String password) {
+    if (!passwordHasher.needsRehash(user.getPassword())) {
+      return;
+    }
+
+    try {
+      String rehashed = passwordHasher.hash(password);
+      if (userRepository.updatePassword(user.getUsername(), user.getPassword(), rehashed) > 0) {
+        user.setPassword(rehashed);
+      }
+    } catch (ResponseStatusException exception) {
+      log.debug("Skipping rehash for {}: {}", user.getUsername(), exception.getReason());
+    }
+  }
+
+  private void deleteSession(String token) {
+    tokenCache.invalidate(token);
+    tokenFilter.remove(token);
+    sessionRepository.deleteById(token);
+  }
+
+  private String newRefreshToken() {
+    byte[] bytes = new byte[32];
+    RANDOM.nextBytes(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private String hashRefreshToken(String refreshToken) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException(exception);
+    }
   }
 
 }
@@ -0,0 +1,107 @@
+package com.learn.learn_spring_rest.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import com.learn.learn_spring_rest.search.Emails;
+import com.learn.learn_spring_rest.search.Names;
+import com.learn.learn_spring_rest.search.PhoneNumbers;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fills the normalized phone, email and phonetic name columns for contacts
+ * written before they existed. Runs on its own thread once the application is
+ * ready, so startup does not wait for it, in batches of short updates by id
+ * instead of one statement over the whole table, and stops when no row is
+ * left; new writes fill the columns themselves.
+ */
+@Slf4j
+@Component
+public class ContactBackfill {
+
+  private static final String SELECT_SQL = "SELECT id, phone FROM contacts WHERE phone IS NOT NULL AND phone_digits IS NULL LIMIT ?";
+
+  private static final String UPDATE_SQL = "UPDATE contacts SET phone_digits = ?, phone_digits_reversed = ? WHERE id = ? AND phone_digits IS NULL";
+
+  private static final String NAME_SELECT_SQL = "SELECT id, first_name, last_name FROM contacts WHERE first_name_phonetic IS NULL LIMIT ?";
+
+  private static final String NAME_UPDATE_SQL = "UPDATE contacts SET first_name_phonetic = ?, last_name_phonetic = ? WHERE id = ? AND first_name_phonetic IS NULL";
+
+  private static final String EMAIL_SELECT_SQL = "SELECT id, email FROM contacts WHERE email IS NOT NULL AND email_normalized IS NULL LIMIT ?";
+
+  private static final String EMAIL_UPDATE_SQL = "UPDATE contacts SET email_normalized = ? WHERE id = ? AND email_normalized IS NULL";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Value("${app.contact.backfill.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.contact.backfill.batch-size:500}")
+  private int batchSize;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    if (!enabled) {
+      return;
+    }
+
+    Thread thread = new Thread(() -> {
+      try {
+        run();
+      } catch (RuntimeException exception) {
+        log.warn("Contact backfill failed, it is retried on the next start", exception);
+      }
+    }, "contact-backfill");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public int run() {
+    int emails = backfill(EMAIL_SELECT_SQL, EMAIL_UPDATE_SQL, (resultSet, rowNum) -> new Object[] {
+        Emails.normalize(resultSet.getString("email")), resultSet.getString("id") });
+    if (emails > 0) {
+      log.info("Backfilled normalized email for {} contacts", emails);
+    }
+
+    int total = backfill(SELECT_SQL, UPDATE_SQL, (resultSet, rowNum) -> {
+      String digits = PhoneNumbers.digits(resultSet.getString("phone"));
+      return new Object[] { digits, PhoneNumbers.reversed(digits), resultSet.getString("id") };
+    });
+    if (total > 0) {
+      log.info("Backfilled phone digits for {} contacts", total);
+    }
+
+    int names = backfill(NAME_SELECT_SQL, NAME_UPDATE_SQL, (resultSet, rowNum) -> new Object[] {
+        Names.phonetic(resultSet.getString("first_name")), Names.phonetic(resultSet.getString("last_name")),
+        resultSet.getString("id") });
+    if (names > 0) {
+      log.info("Backfilled phonetic names for {} contacts", names);
+    }
+    return emails + total + names;
+  }
+
+  // each batch is its own short statement, so no lock is held on more than a batch of rows at a time
+  private int backfill(String selectSql, String updateSql, RowMapper<Object[]> rowMapper) {
+    int count = 0;
+    while (true) {
+      List<Object[]> batch = jdbcTemplate.query(selectSql, rowMapper, batchSize);
+
+      if (!batch.isEmpty()) {
+        jdbcTemplate.batchUpdate(updateSql, batch);
+        count += batch.size();
+      }
+      if (batch.size() < batchSize) {
+        return count;
+      }
+    }
+  }
+}
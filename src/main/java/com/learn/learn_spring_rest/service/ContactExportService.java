@@ -0,0 +1,106 @@
+package com.learn.learn_spring_rest.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.AddressResponse;
+import com.learn.learn_spring_rest.model.ContactResponse;
+import com.learn.learn_spring_rest.repository.ContactRepository;
+
+/**
+ * Writes all of a user's contacts with their addresses as NDJSON, one contact
+ * per line. Rows are read from a forward-only cursor, fetch-size rows at a
+ * time, and a contact is written as soon as its last address has been read,
+ * so memory stays the same whatever the number of contacts.
+ */
+@Service
+public class ContactExportService {
+
+  @Autowired
+  private ContactRepository contactRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${app.contact.export.fetch-size:500}")
+  private int fetchSize;
+
+  // the transaction keeps the cursor open on postgres, which only honours the fetch size outside autocommit
+  @Transactional(readOnly = true)
+  public long export(User user, OutputStream outputStream) throws IOException {
+    // the generator buffers and the container flushes, one flush per contact would mean one write per line
+    ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    long count = 0;
+
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        Stream<Object[]> rows = contactRepository.streamExport(user.getUsername(), fetchSize)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+
+      ContactResponse contact = null;
+      Iterator<Object[]> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        Object[] row = iterator.next();
+        if (contact == null || !contact.getId().equals(row[0])) {
+          if (contact != null) {
+            write(writer, generator, contact);
+            count++;
+          }
+          contact = toContactResponse(row);
+        }
+
+        if (row[5] != null) {
+          contact.getAddresses().add(toAddressResponse(row));
+        }
+      }
+
+      if (contact != null) {
+        write(writer, generator, contact);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void write(ObjectWriter writer, JsonGenerator generator, ContactResponse contact) throws IOException {
+    writer.writeValue(generator, contact);
+    generator.writeRaw('\n');
+  }
+
+  private ContactResponse toContactResponse(Object[] row) {
+    return ContactResponse.builder()
+        .id((String) row[0])
+        .firstName((String) row[1])
+        .lastName((String) row[2])
+        .email((String) row[3])
+        .phone((String) row[4])
+        .version((Long) row[11])
+        .addresses(new ArrayList<>())
+        .build();
+  }
+
+  private AddressResponse toAddressResponse(Object[] row) {
+    return AddressResponse.builder()
+        .id((String) row[5])
+        .street((String) row[6])
+        .city((String) row[7])
+        .province((String) row[8])
+        .country((String) row[9])
+        .postalCode((String) row[10])
+        .version((Long) row[12])
+        .build();
+  }
+}
@@ -0,0 +1,133 @@
+package com.learn.learn_spring_rest.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.importer.ContactRecordException;
+import com.learn.learn_spring_rest.importer.ContactRecordReader;
+import com.learn.learn_spring_rest.importer.ContactRecordReaders;
+import com.learn.learn_spring_rest.model.CreateContactRequest;
+import com.learn.learn_spring_rest.model.ImportContactError;
+import com.learn.learn_spring_rest.model.ImportContactResponse;
+
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports contacts from a CSV, vCard or NDJSON request body. Records are
+ * parsed one at a time, validated, and committed in batches of
+ * {@code app.contact.import.batch-size}. Nothing more is read from the request
+ * while a batch is being written, so a client sending faster than the
+ * database accepts is slowed down by the connection itself, and memory holds
+ * one batch whatever the size of the file.
+ */
+@Slf4j
+@Service
+public class ContactImportService {
+
+  @Autowired
+  private ContactService contactService;
+
+  @Autowired
+  private ValidationService validationService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${app.contact.import.batch-size:500}")
+  private int batchSize;
+
+  @Value("${app.contact.import.max-errors:100}")
+  private int maxErrors;
+
+  public ImportContactResponse importContacts(User user, MediaType contentType, InputStream inputStream)
+      throws IOException {
+    if (contentType == null || !ContactRecordReaders.isSupported(contentType)) {
+      throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+          "Content type must be text/csv, text/vcard or application/x-ndjson");
+    }
+
+    ContactRecordReader reader;
+    try {
+      reader = ContactRecordReaders.open(contentType, inputStream, objectMapper);
+    } catch (ContactRecordException exception) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage());
+    }
+
+    ImportContactResponse response = ImportContactResponse.builder()
+        .errors(new ArrayList<>())
+        .build();
+    List<CreateContactRequest> batch = new ArrayList<>(batchSize);
+    List<Long> records = new ArrayList<>(batchSize);
+
+    while (true) {
+      CreateContactRequest request;
+      try {
+        request = reader.next();
+      } catch (ContactRecordException exception) {
+        fail(response, reader.record(), exception.getMessage());
+        if (exception.isFatal()) {
+          break;
+        }
+        continue;
+      }
+      if (request == null) {
+        break;
+      }
+
+      try {
+        validationService.validate(request);
+      } catch (ConstraintViolationException exception) {
+        fail(response, reader.record(), exception.getMessage());
+        continue;
+      }
+
+      batch.add(request);
+      records.add(reader.record());
+      if (batch.size() >= batchSize) {
+        write(user, batch, records, response);
+      }
+    }
+
+    write(user, batch, records, response);
+    return response;
+  }
+
+  private void write(User user, List<CreateContactRequest> batch, List<Long> records,
+      ImportContactResponse response) {
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    try {
+      contactService.createAll(user, batch);
+      response.setImported(response.getImported() + batch.size());
+    } catch (DataAccessException | TransactionException exception) {
+      log.warn("Contact import batch of {} records failed for {}", batch.size(), user.getUsername(), exception);
+      records.forEach(record -> fail(response, record, "Failed to write contact"));
+    }
+
+    batch.clear();
+    records.clear();
+  }
+
+  private void fail(ImportContactResponse response, long record, String errors) {
+    response.setFailed(response.getFailed() + 1);
+    if (response.getErrors().size() < maxErrors) {
+      response.getErrors().add(ImportContactError.builder().record(record).errors(errors).build());
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.learn.learn_spring_rest.service;
+
+import java.util.Locale;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks how contact search matches a substring. On Postgres the search runs as
+ * {@code ILIKE '%x%'}, which the {@code pg_trgm} GIN indexes from
+ * database-postgresql.sql can serve; everywhere else it stays a plain
+ * {@code LIKE}, which MySQL already matches case-insensitively.
+ */
+@Slf4j
+@Component
+public class ContactSearchStrategy {
+
+  public enum Mode {
+    LIKE, TRIGRAM
+  }
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Value("${app.contact.search-mode:auto}")
+  private String searchMode;
+
+  private Mode mode;
+
+  @PostConstruct
+  void init() {
+    Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    boolean postgres = dialect instanceof PostgreSQLDialect;
+
+    if ("auto".equalsIgnoreCase(searchMode)) {
+      mode = postgres ? Mode.TRIGRAM : Mode.LIKE;
+    } else {
+      try {
+        mode = Mode.valueOf(searchMode.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException exception) {
+        throw new IllegalStateException("Invalid app.contact.search-mode '" + searchMode
+            + "', expected one of auto, like, trigram", exception);
+      }
+    }
+    if (mode == Mode.TRIGRAM && !postgres) {
+      log.warn("Trigram contact search needs PostgreSQL, falling back to LIKE on {}", dialect);
+      mode = Mode.LIKE;
+    }
+
+    if (mode == Mode.TRIGRAM && !trigramExtensionInstalled()) {
+      log.warn("pg_trgm is not installed, contact search will not be index backed until database-postgresql.sql is applied");
+    }
+
+    log.info("Contact search mode is {}", mode);
+  }
+
+  public boolean isCaseInsensitive() {
+    return mode == Mode.TRIGRAM;
+  }
+
+  private boolean trigramExtensionInstalled() {
+    try {
+      Integer count = jdbcTemplate.queryForObject(
+          "SELECT count(*) FROM pg_extension WHERE extname = 'pg_trgm'", Integer.class);
+      return count != null && count > 0;
+    } catch (RuntimeException exception) {
+      return false;
+    }
+  }
+}
@@ -1,59 +1,162 @@
 package com.learn.learn_spring_rest.service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.learn.learn_spring_rest.entity.Address;
 import com.learn.learn_spring_rest.entity.Contact;
+import com.learn.learn_spring_rest.entity.ContactCounter;
 import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.AddressResponse;
+import com.learn.learn_spring_rest.model.BulkContactRequest;
+import com.learn.learn_spring_rest.model.BulkContactResult;
 import com.learn.learn_spring_rest.model.ContactResponse;
 import com.learn.learn_spring_rest.model.CreateContactRequest;
+import com.learn.learn_spring_rest.model.CursorPage;
+import com.learn.learn_spring_rest.model.LookupContactRequest;
+import com.learn.learn_spring_rest.model.PatchContactRequest;
 import com.learn.learn_spring_rest.model.SearchContactRequest;
 import com.learn.learn_spring_rest.model.UpdateContactRequest;
+import com.learn.learn_spring_rest.model.VersionResponse;
+import com.learn.learn_spring_rest.repository.AddressRepository;
+import com.learn.learn_spring_rest.repository.ContactCounterRepository;
 import com.learn.learn_spring_rest.repository.ContactRepository;
+import com.learn.learn_spring_rest.repository.ContactSearchFilter;
+import com.learn.learn_spring_rest.search.ContactLookupCache;
+import com.learn.learn_spring_rest.search.ContactSearchIndex;
+import com.learn.learn_spring_rest.search.Emails;
+import com.learn.learn_spring_rest.search.LikePatterns;
+import com.learn.learn_spring_rest.search.Names;
+import com.learn.learn_spring_rest.search.PhoneNumbers;
 
-import jakarta.persistence.criteria.Predicate;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 public class ContactService {
 
+  private static final int FUZZY_CANDIDATES = 1000;
+
+  private static final String EXPAND_ADDRESSES = "addresses";
+
   @Autowired
   private ContactRepository contactRepository;
 
   @Autowired
   private ValidationService validationService;
 
+  @Autowired
+  private ContactSearchStrategy contactSearchStrategy;
+
+  @Autowired
+  private ContactSearchIndex contactSearchIndex;
+
+  @Autowired
+  private ContactCounterRepository contactCounterRepository;
+
+  @Autowired
+  private AddressRepository addressRepository;
+
+  @Autowired
+  private ContactLookupCache contactLookupCache;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Value("${app.contact.bulk.max-items:5000}")
+  private int bulkMaxItems;
+
+  @Value("${app.contact.bulk.chunk-size:500}")
+  private int bulkChunkSize;
+
   @Transactional
   public ContactResponse create(User user, CreateContactRequest request) {
     validationService.validate(request);
 
-    Contact contact = new Contact();
-    contact.setId(UUID.randomUUID().toString());
-    contact.setFirstName(request.getFirstName());
-    contact.setLastName(request.getLastName());
-    contact.setEmail(request.getEmail());
-    contact.setPhone(request.getPhone());
-    contact.setUser(user);
-
+    Contact contact = newContact(user, request);
     contactRepository.save(contact);
+    adjustCounter(user, 1);
 
-    return toContactResponse(contact);
+    ContactResponse response = toContactResponse(contact);
+    contactSearchIndex.saved(user.getUsername(), response);
+    contactLookupCache.invalidateUser(user.getUsername());
+    return response;
+  }
+
+  /**
+   * Creates, updates and deletes many contacts in one call. Items are validated
+   * one by one, then written in chunks of {@code app.contact.bulk.chunk-size},
+   * each chunk in its own transaction with its inserts, updates and deletes
+   * sent as JDBC batches. A failing chunk only fails its own items; every item
+   * gets a result with the status it would have had as a single request.
+   */
+  public List<BulkContactResult> bulk(User user, BulkContactRequest request) {
+    List<CreateContactRequest> creates = Objects.requireNonNullElse(request.getCreate(), List.of());
+    List<UpdateContactRequest> updates = Objects.requireNonNullElse(request.getUpdate(), List.of());
+    List<String> deletes = Objects.requireNonNullElse(request.getDelete(), List.of());
+    if (creates.size() + updates.size() + deletes.size() > bulkMaxItems) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + bulkMaxItems + " items are allowed");
+    }
+
+    List<BulkContactResult> results = new ArrayList<>(creates.size() + updates.size() + deletes.size());
+    bulkCreate(user, creates, results);
+    bulkUpdate(user, updates, results);
+    bulkDelete(user, deletes, results);
+    return results;
+  }
+
+  /**
+   * Inserts contacts that were already validated in one transaction, as one
+   * JDBC batch. For imports, which do their own validation and batching.
+   */
+  @Transactional
+  public void createAll(User user, List<CreateContactRequest> requests) {
+    insertContacts(user, requests.stream().map(request -> newContact(user, request)).toList());
+    contactLookupCache.invalidateUser(user.getUsername());
   }
 
   @Transactional(readOnly = true)
-  public ContactResponse get(User user, String id) {
+  public ContactResponse get(User user, String id, String expand) {
+    if (expandsAddresses(expand)) {
+      Contact contact = contactRepository.findWithAddresses(user.getUsername(), id)
+          .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
+
+      ContactResponse response = toContactResponse(contact);
+      response.setAddresses(contact.getAddresses().stream().map(this::toAddressResponse).toList());
+      return response;
+    }
+
     Contact contact = contactRepository.findFirstByUserAndId(user, id)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
 
@@ -71,48 +174,146 @@ public class ContactService {
     contact.setLastName(request.getLastName());
     contact.setEmail(request.getEmail());
     contact.setPhone(request.getPhone());
-    contactRepository.save(contact);
+    // flushed now so the response carries the incremented version
+    contactRepository.saveAndFlush(contact);
 
-    return toContactResponse(contact);
+    ContactResponse response = toContactResponse(contact);
+    contactSearchIndex.saved(user.getUsername(), response);
+    contactLookupCache.invalidateUser(user.getUsername());
+    return response;
   }
 
+  // a single UPDATE of the fields in the request, applied only while the contact is at the
+  // version the client read; the contact is not loaded unless the update misses
   @Transactional
-  public void delete(User user, String contactId) {
-    Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+  public VersionResponse patch(User user, PatchContactRequest request) {
+    validationService.validate(request);
+
+    if (request.getFields().isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one field is required");
+    }
+    // the bean constraints skip nulls, but both names are NOT NULL columns: sent means given a value
+    if (request.getFields().contains("firstName") && Objects.isNull(request.getFirstName())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "firstName: must not be blank");
+    }
+    if (request.getFields().contains("lastName") && Objects.isNull(request.getLastName())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lastName: must not be null");
+    }
+
+    Map<String, String> changes = new LinkedHashMap<>();
+    for (String field : request.getFields()) {
+      switch (field) {
+        case "firstName" -> changes.put(field, request.getFirstName());
+        case "lastName" -> changes.put(field, request.getLastName());
+        case "email" -> changes.put(field, request.getEmail());
+        default -> changes.put(field, request.getPhone());
+      }
+    }
+
+    if (contactRepository.patch(user.getUsername(), request.getId(), request.getVersion(), changes) == 0) {
+      long current = version(user, request.getId());
+      throw new ResponseStatusException(HttpStatus.CONFLICT,
+          "Contact has been modified, current version is " + current);
+    }
+
+    long version = request.getVersion() + 1;
+    contactSearchIndex.patched(user.getUsername(), request.getId(), contact -> contact.toBuilder()
+        .firstName(changes.containsKey("firstName") ? request.getFirstName() : contact.getFirstName())
+        .lastName(changes.containsKey("lastName") ? request.getLastName() : contact.getLastName())
+        .email(changes.containsKey("email") ? request.getEmail() : contact.getEmail())
+        .phone(changes.containsKey("phone") ? request.getPhone() : contact.getPhone())
+        .version(version)
+        .build());
+    contactLookupCache.invalidateUser(user.getUsername());
+    return VersionResponse.builder().id(request.getId()).version(version).build();
+  }
+
+  // for conditional requests, answered without loading the contact
+  public long version(User user, String contactId) {
+    return contactRepository.findVersion(user.getUsername(), contactId)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!"));
+  }
 
-    contactRepository.delete(contact);
+  // an address write has bumped the contact version, which the cached responses carry
+  void addressesChanged(User user, Contact contact) {
+    contactSearchIndex.saved(user.getUsername(), toContactResponse(contact));
+    contactLookupCache.invalidateUser(user.getUsername());
   }
 
-  @SuppressWarnings("null")
-  @Transactional(readOnly = true)
-  public Page<ContactResponse> search(User user, SearchContactRequest request) {
-    Specification<Contact> specification = (root, query, builder) -> {
-      List<Predicate> predicates = new ArrayList<>();
-      predicates.add(builder.equal(root.get("user"), user));
-
-      if (Objects.nonNull(request.getName())) {
-        predicates.add(builder.or(
-            builder.like(root.get("firstName"), "%" + request.getName() + "%"),
-            builder.like(root.get("lastName"), "%" + request.getName() + "%")));
-      }
+  // an address patch has incremented the contact version in the database
+  void addressPatched(User user, String contactId) {
+    contactSearchIndex.patched(user.getUsername(), contactId,
+        contact -> contact.toBuilder().version(contact.getVersion() + 1).build());
+    contactLookupCache.invalidateUser(user.getUsername());
+  }
 
-      if (Objects.nonNull(request.getEmail())) {
-        predicates.add(builder.or(
-            builder.like(root.get("email"), "%" + request.getEmail() + "%")));
-      }
+  // the addresses and then the contact, each with one statement and without loading either
+  @Transactional
+  public void delete(User user, String contactId) {
+    if (contactRepository.deleteWithAddresses(user.getUsername(), List.of(contactId)) == 0) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact not found!");
+    }
 
-      if (Objects.nonNull(request.getPhone())) {
-        predicates.add(builder.or(
-            builder.like(root.get("phone"), "%" + request.getPhone() + "%")));
-      }
+    adjustCounter(user, -1);
+    contactSearchIndex.deleted(user.getUsername(), contactId);
+    contactLookupCache.invalidateUser(user.getUsername());
+  }
+
+  // every contact matching the search filters, with their addresses, in two statements; at least one
+  // filter is required so a request that lost its parameters cannot empty the whole address book
+  @Transactional
+  public long deleteAll(User user, SearchContactRequest request) {
+    if (Stream.of(request.getName(), request.getEmail(), request.getPhone())
+        .noneMatch(value -> Objects.nonNull(value) && !value.isBlank())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one filter is required");
+    }
+
+    int deleted = contactRepository.deleteWithAddresses(user.getUsername(), searchFilter(request));
+    if (deleted > 0) {
+      adjustCounter(user, -deleted);
+      contactSearchIndex.deletedAll(user.getUsername());
+      contactLookupCache.invalidateUser(user.getUsername());
+    }
+    return deleted;
+  }
 
-      return query.where(predicates.toArray(new Predicate[] {})).getRestriction();
-    };
+  // not @Transactional: a search answered from the in-memory index should not touch the
+  // database at all, the loader and the query below run in the repository's own transaction
+  public Page<ContactResponse> search(User user, SearchContactRequest request) {
+    boolean addresses = expandsAddresses(request.getExpand());
+    Page<ContactResponse> contacts = findPage(user, request);
+    return addresses ? contacts.map(withAddresses(contacts.getContent())) : contacts;
+  }
+
+  // offset paging without a total, the page query fetches one extra row to tell whether there is a next page
+  public Slice<ContactResponse> searchSlice(User user, SearchContactRequest request) {
+    boolean addresses = expandsAddresses(request.getExpand());
+    Slice<ContactResponse> contacts = findSlice(user, request);
+    return addresses ? contacts.map(withAddresses(contacts.getContent())) : contacts;
+  }
+
+  private Page<ContactResponse> findPage(User user, SearchContactRequest request) {
+    Optional<Page<ContactResponse>> indexed = searchIndex(user, request);
+    if (indexed.isPresent()) {
+      return indexed.get();
+    }
+    if (contactSearchIndex.isFuzzy(request)) {
+      return fuzzySearch(user, request);
+    }
 
+    ContactSearchFilter filter = searchFilter(request);
     Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
 
-    Page<Contact> contacts = contactRepository.findAll(specification, pageable);
+    // an unfiltered listing takes its total from the maintained counter instead of a count(*)
+    Optional<Long> total = isFiltered(request) ? Optional.empty()
+        : contactCounterRepository.findById(user.getUsername()).map(ContactCounter::getTotal);
+    if (total.isPresent()) {
+      Slice<Contact> contacts = contactRepository.searchSlice(user.getUsername(), filter, pageable);
+      return new PageImpl<>(contacts.getContent().stream().map(this::toContactResponse).toList(), pageable,
+          total.get());
+    }
+
+    Page<Contact> contacts = contactRepository.search(user.getUsername(), filter, pageable);
     List<ContactResponse> contactResponses = contacts.getContent().stream()
         .map(this::toContactResponse)
         .toList();
@@ -120,6 +321,366 @@ public class ContactService {
     return new PageImpl<>(contactResponses, pageable, contacts.getTotalElements());
   }
 
+  private Slice<ContactResponse> findSlice(User user, SearchContactRequest request) {
+    Optional<Page<ContactResponse>> indexed = searchIndex(user, request);
+    if (indexed.isPresent()) {
+      return indexed.get();
+    }
+    if (contactSearchIndex.isFuzzy(request)) {
+      return fuzzySearch(user, request);
+    }
+
+    Slice<Contact> contacts = contactRepository.searchSlice(user.getUsername(), searchFilter(request),
+        PageRequest.of(request.getPage(), request.getSize()));
+    return contacts.map(this::toContactResponse);
+  }
+
+  // exact match on the normalized phone digits or email, for caller-id style lookups
+  public List<ContactResponse> lookup(User user, LookupContactRequest request) {
+    validationService.validate(request);
+
+    String phoneDigits = PhoneNumbers.digits(request.getPhone());
+    String email = Emails.normalize(request.getEmail());
+    if (Objects.nonNull(phoneDigits) && phoneDigits.isEmpty()) {
+      phoneDigits = null;
+    }
+    if (Objects.nonNull(email) && email.isEmpty()) {
+      email = null;
+    }
+    if (Objects.isNull(phoneDigits) && Objects.isNull(email)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Phone or email is required");
+    }
+
+    String lookupPhone = phoneDigits;
+    String lookupEmail = email;
+    return contactLookupCache.get(user.getUsername(), lookupPhone, lookupEmail,
+        () -> contactRepository.lookup(user.getUsername(), lookupPhone, lookupEmail).stream()
+            .map(this::toContactResponse)
+            .toList());
+  }
+
+  // name autocomplete returning contact ids only, answered from the in-memory index when possible
+  public List<String> suggest(User user, String prefix, Integer limit) {
+    if (Objects.isNull(prefix) || prefix.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Prefix is required");
+    }
+
+    int size = Objects.isNull(limit) ? 10 : limit;
+    if (size < 1 || size > 50) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and 50");
+    }
+
+    String query = prefix.trim().toLowerCase(Locale.ROOT);
+    return contactSearchIndex.suggest(user.getUsername(), query, size,
+        () -> contactRepository.findAllByUser(user).stream()
+            .map(this::toContactResponse)
+            .toList())
+        .orElseGet(() -> contactRepository.suggest(user.getUsername(), LikePatterns.startsWith(query),
+            PageRequest.of(0, size)));
+  }
+
+  // keyset pagination on (firstName, id): each page seeks past the last row of the previous
+  // one instead of skipping an offset, so deep pages cost the same as the first
+  public CursorPage<ContactResponse> searchByCursor(User user, SearchContactRequest request) {
+    if (request.getSize() < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Size must be at least 1");
+    }
+    if (contactSearchIndex.isFuzzy(request)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fuzzy search does not support cursor paging");
+    }
+    boolean addresses = expandsAddresses(request.getExpand());
+
+    String[] after = decodeCursor(request.getCursor());
+    List<Contact> contacts = contactRepository.searchAfter(user.getUsername(), searchFilter(request),
+        Objects.nonNull(after) ? after[0] : null, Objects.nonNull(after) ? after[1] : null, request.getSize() + 1);
+
+    boolean hasNext = contacts.size() > request.getSize();
+    List<Contact> page = hasNext ? contacts.subList(0, request.getSize()) : contacts;
+    List<ContactResponse> content = page.stream().map(this::toContactResponse).toList();
+
+    return CursorPage.<ContactResponse>builder()
+        .content(addresses ? content.stream().map(withAddresses(content)).toList() : content)
+        .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1)) : null)
+        .build();
+  }
+
+  private Optional<Page<ContactResponse>> searchIndex(User user, SearchContactRequest request) {
+    return contactSearchIndex.search(user.getUsername(), request,
+        () -> contactRepository.findAllByUser(user).stream()
+            .map(this::toContactResponse)
+            .toList());
+  }
+
+  // ranked in memory from the candidates the phonetic column and a substring on the longest query word find;
+  // approximate: only the first FUZZY_CANDIDATES of them in name order are ranked and counted
+  private Page<ContactResponse> fuzzySearch(User user, SearchContactRequest request) {
+    String word = Names.words(request.getName()).stream()
+        .max(Comparator.comparingInt(String::length))
+        .orElseThrow();
+    List<String> keys = new ArrayList<>(Names.phoneticKeys(word));
+    String primaryKey = keys.isEmpty() ? "-" : "% " + keys.get(0) + " %";
+    String alternateKey = keys.size() < 2 ? primaryKey : "% " + keys.get(1) + " %";
+
+    List<ContactResponse> candidates = contactRepository.findFuzzyCandidates(user.getUsername(),
+        LikePatterns.contains(word), primaryKey, alternateKey, PageRequest.of(0, FUZZY_CANDIDATES)).stream()
+        .map(this::toContactResponse)
+        .toList();
+    return contactSearchIndex.rank(candidates, request);
+  }
+
+  private void bulkCreate(User user, List<CreateContactRequest> requests, List<BulkContactResult> results) {
+    List<Contact> contacts = new ArrayList<>();
+    List<BulkContactResult> written = new ArrayList<>();
+    for (int i = 0; i < requests.size(); i++) {
+      CreateContactRequest request = requests.get(i);
+      BulkContactResult result = BulkContactResult.builder().operation("create").index(i).build();
+      results.add(result);
+      if (!isValid(request, result)) {
+        continue;
+      }
+
+      Contact contact = newContact(user, request);
+      contacts.add(contact);
+
+      result.setId(contact.getId());
+      written.add(result);
+    }
+
+    for (int from = 0; from < contacts.size(); from += bulkChunkSize) {
+      int to = Math.min(contacts.size(), from + bulkChunkSize);
+      List<Contact> chunk = contacts.subList(from, to);
+      writeChunk(user, written.subList(from, to), () -> insertContacts(user, chunk));
+    }
+  }
+
+  private void insertContacts(User user, List<Contact> contacts) {
+    contactRepository.insertAll(contacts);
+    adjustCounter(user, contacts.size());
+    contacts.forEach(contact -> contactSearchIndex.saved(user.getUsername(), toContactResponse(contact)));
+  }
+
+  private void bulkUpdate(User user, List<UpdateContactRequest> requests, List<BulkContactResult> results) {
+    List<UpdateContactRequest> valid = new ArrayList<>();
+    List<BulkContactResult> written = new ArrayList<>();
+    for (int i = 0; i < requests.size(); i++) {
+      UpdateContactRequest request = requests.get(i);
+      BulkContactResult result = BulkContactResult.builder()
+          .operation("update")
+          .index(i)
+          .id(Objects.nonNull(request) ? request.getId() : null)
+          .build();
+      results.add(result);
+      if (isValid(request, result)) {
+        valid.add(request);
+        written.add(result);
+      }
+    }
+
+    for (int from = 0; from < valid.size(); from += bulkChunkSize) {
+      int to = Math.min(valid.size(), from + bulkChunkSize);
+      List<UpdateContactRequest> chunk = valid.subList(from, to);
+      List<BulkContactResult> chunkResults = written.subList(from, to);
+      writeChunk(user, chunkResults, () -> {
+        // one select for the chunk, the changes are flushed as batched updates on commit
+        Map<String, Contact> contacts = contactRepository
+            .findAllByUserAndIdIn(user, chunk.stream().map(UpdateContactRequest::getId).toList()).stream()
+            .collect(Collectors.toMap(Contact::getId, Function.identity()));
+
+        for (int i = 0; i < chunk.size(); i++) {
+          Contact contact = contacts.get(chunk.get(i).getId());
+          if (Objects.isNull(contact)) {
+            chunkResults.get(i).setStatus(HttpStatus.NOT_FOUND.value());
+            chunkResults.get(i).setErrors("Contact not found!");
+            continue;
+          }
+
+          contact.setFirstName(chunk.get(i).getFirstName());
+          contact.setLastName(chunk.get(i).getLastName());
+          contact.setEmail(chunk.get(i).getEmail());
+          contact.setPhone(chunk.get(i).getPhone());
+        }
+
+        // flushed before commit so the index gets the incremented versions
+        contactRepository.flush();
+        contacts.values().forEach(contact -> contactSearchIndex.saved(user.getUsername(), toContactResponse(contact)));
+      });
+    }
+  }
+
+  private void bulkDelete(User user, List<String> ids, List<BulkContactResult> results) {
+    List<String> valid = new ArrayList<>();
+    List<BulkContactResult> written = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i++) {
+      BulkContactResult result = BulkContactResult.builder().operation("delete").index(i).id(ids.get(i)).build();
+      results.add(result);
+      if (Objects.isNull(ids.get(i)) || ids.get(i).isBlank()) {
+        result.setStatus(HttpStatus.BAD_REQUEST.value());
+        result.setErrors("Id is required");
+        continue;
+      }
+
+      valid.add(ids.get(i));
+      written.add(result);
+    }
+
+    for (int from = 0; from < valid.size(); from += bulkChunkSize) {
+      int to = Math.min(valid.size(), from + bulkChunkSize);
+      List<String> chunk = valid.subList(from, to);
+      List<BulkContactResult> chunkResults = written.subList(from, to);
+      writeChunk(user, chunkResults, () -> {
+        List<String> existing = contactRepository.findIds(user.getUsername(), chunk);
+        Set<String> remaining = new HashSet<>(existing);
+        for (int i = 0; i < chunk.size(); i++) {
+          // a repeated id is only deleted once
+          if (!remaining.remove(chunk.get(i))) {
+            chunkResults.get(i).setStatus(HttpStatus.NOT_FOUND.value());
+            chunkResults.get(i).setErrors("Contact not found!");
+          }
+        }
+
+        if (!existing.isEmpty()) {
+          contactRepository.deleteWithAddresses(user.getUsername(), existing);
+          adjustCounter(user, -existing.size());
+          existing.forEach(id -> contactSearchIndex.deleted(user.getUsername(), id));
+        }
+      });
+    }
+  }
+
+  private boolean isValid(Object request, BulkContactResult result) {
+    if (Objects.isNull(request)) {
+      result.setStatus(HttpStatus.BAD_REQUEST.value());
+      result.setErrors("Item is required");
+      return false;
+    }
+
+    try {
+      validationService.validate(request);
+      return true;
+    } catch (ConstraintViolationException exception) {
+      result.setStatus(HttpStatus.BAD_REQUEST.value());
+      result.setErrors(exception.getMessage());
+      return false;
+    }
+  }
+
+  // items already given a status inside the chunk (not found) keep it, the rest succeed or fail together
+  private void writeChunk(User user, List<BulkContactResult> chunkResults, Runnable write) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        write.run();
+        contactLookupCache.invalidateUser(user.getUsername());
+      });
+    } catch (DataAccessException | TransactionException exception) {
+      log.warn("Bulk contact chunk of {} items failed for {}", chunkResults.size(), user.getUsername(), exception);
+      chunkResults.stream()
+          .filter(result -> Objects.isNull(result.getStatus()))
+          .forEach(result -> {
+            result.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            result.setErrors("Failed to write contact");
+          });
+      return;
+    }
+
+    chunkResults.stream()
+        .filter(result -> Objects.isNull(result.getStatus()))
+        .forEach(result -> result.setStatus(HttpStatus.OK.value()));
+  }
+
+  private boolean isFiltered(SearchContactRequest request) {
+    return Objects.nonNull(request.getName()) || Objects.nonNull(request.getEmail())
+        || Objects.nonNull(request.getPhone());
+  }
+
+  // counts are kept in the same transaction as the contact write; users without a row yet
+  // (created before the counter existed) start from an exact count that already includes this write
+  private void adjustCounter(User user, long delta) {
+    contactCounterRepository.add(user.getUsername(), delta);
+  }
+
+  private ContactSearchFilter searchFilter(SearchContactRequest request) {
+    return new ContactSearchFilter(request.getName(), request.getEmail(), request.getPhone(),
+        contactSearchStrategy.isCaseInsensitive());
+  }
+
+  private String encodeCursor(Contact contact) {
+    String key = contact.getFirstName() + "\n" + contact.getId();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // an empty cursor starts from the first page
+  private String[] decodeCursor(String cursor) {
+    if (Objects.isNull(cursor) || cursor.isEmpty()) {
+      return null;
+    }
+
+    try {
+      String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = key.lastIndexOf('\n');
+      if (separator < 0) {
+        throw new IllegalArgumentException();
+      }
+      return new String[] { key.substring(0, separator), key.substring(separator + 1) };
+    } catch (IllegalArgumentException exception) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
+  }
+
+  // rejects an unknown expand with 400
+  public boolean expandsAddresses(String expand) {
+    if (Objects.isNull(expand) || expand.isBlank()) {
+      return false;
+    }
+
+    for (String value : expand.split(",")) {
+      if (!value.trim().equals(EXPAND_ADDRESSES)) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown expand: " + value.trim());
+      }
+    }
+    return true;
+  }
+
+  // addresses of a whole page in one IN query instead of one query per contact; the responses are
+  // copied because those from the in-memory index are shared
+  private Function<ContactResponse, ContactResponse> withAddresses(List<ContactResponse> contacts) {
+    Map<String, List<AddressResponse>> addresses = new HashMap<>();
+    if (!contacts.isEmpty()) {
+      List<String> ids = contacts.stream().map(ContactResponse::getId).toList();
+      for (Object[] row : addressRepository.findRowsByContactIdIn(ids)) {
+        addresses.computeIfAbsent((String) row[0], id -> new ArrayList<>()).add(AddressResponse.builder()
+            .id((String) row[1])
+            .street((String) row[2])
+            .city((String) row[3])
+            .province((String) row[4])
+            .country((String) row[5])
+            .postalCode((String) row[6])
+            .version((Long) row[7])
+            .build());
+      }
+    }
+
+    return contact -> ContactResponse.builder()
+        .id(contact.getId())
+        .firstName(contact.getFirstName())
+        .lastName(contact.getLastName())
+        .email(contact.getEmail())
+        .phone(contact.getPhone())
+        .version(contact.getVersion())
+        .addresses(addresses.getOrDefault(contact.getId(), List.of()))
+        .build();
+  }
+
+  private Contact newContact(User user, CreateContactRequest request) {
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setFirstName(request.getFirstName());
+    contact.setLastName(request.getLastName());
+    contact.setEmail(request.getEmail());
+    contact.setPhone(request.getPhone());
+    contact.setUser(user);
+    return contact;
+  }
+
   private ContactResponse toContactResponse(Contact contact) {
     return ContactResponse.builder()
         .id(contact.getId())
@@ -127,6 +688,19 @@ public class ContactService {
         .lastName(contact.getLastName())
         .email(contact.getEmail())
         .phone(contact.getPhone())
+        .version(contact.getVersion())
+        .build();
+  }
+
+  private AddressResponse toAddressResponse(Address address) {
+    return AddressResponse.builder()
+        .id(address.getId())
+        .street(address.getStreet())
+        .city(address.getCity())
+        .province(address.getProvince())
+        .country(address.getCountry())
+        .postalCode(address.getPostalCode())
+        .version(address.getVersion())
         .build();
   }
 
@@ -5,7 +5,6 @@ import java.util.Objects;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.learn.learn_spring_rest.entity.User;
@@ -13,7 +12,7 @@ import com.learn.learn_spring_rest.model.RegisterUserRequest;
 import com.learn.learn_spring_rest.model.UpdateUserRequest;
 import com.learn.learn_spring_rest.model.UserResponse;
 import com.learn.learn_spring_rest.repository.UserRepository;
-import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.PasswordHasher;
 
 @Service
 public class UserService {
@@ -24,7 +23,10 @@ public class UserService {
   @Autowired
   private ValidationService validationService;
 
-  @Transactional
+  @Autowired
+  private PasswordHasher passwordHasher;
+
+  // not @Transactional: no connection should be held while the password is hashed
   public void register(RegisterUserRequest request) {
     validationService.validate(request);
 
@@ -36,7 +38,7 @@ public class UserService {
     // create a new user if there is no any existing username
     User user = new User();
     user.setUsername(request.getUsername());
-    user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+    user.setPassword(passwordHasher.hash(request.getPassword()));
     user.setName(request.getName());
 
     userRepository.save(user);
@@ -46,15 +48,16 @@ public class UserService {
     return UserResponse.builder().username(user.getUsername()).name(user.getName()).build();
   }
 
-  @Transactional
   public UserResponse update(User user, UpdateUserRequest request) {
     validationService.validate(request);
+    String password = Objects.nonNull(request.getPassword()) ? passwordHasher.hash(request.getPassword()) : null;
+
     if (Objects.nonNull(request.getName())) {
       user.setName(request.getName());
     }
 
-    if (Objects.nonNull(request.getPassword())) {
-      user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+    if (Objects.nonNull(password)) {
+      user.setPassword(password);
     }
 
     userRepository.save(user);
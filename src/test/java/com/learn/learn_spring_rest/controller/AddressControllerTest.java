@@ -2,11 +2,13 @@ package com.learn.learn_spring_rest.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -18,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -25,15 +28,19 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learn.learn_spring_rest.entity.Address;
 import com.learn.learn_spring_rest.entity.Contact;
+import com.learn.learn_spring_rest.entity.Session;
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.AddressResponse;
 import com.learn.learn_spring_rest.model.CreateAddressRequest;
 import com.learn.learn_spring_rest.model.UpdateAddressRequest;
+import com.learn.learn_spring_rest.model.VersionResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
 import com.learn.learn_spring_rest.repository.AddressRepository;
 import com.learn.learn_spring_rest.repository.ContactRepository;
+import com.learn.learn_spring_rest.repository.SessionRepository;
 import com.learn.learn_spring_rest.repository.UserRepository;
 import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.TokenCache;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -42,6 +49,9 @@ public class AddressControllerTest {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private SessionRepository sessionRepository;
+
   @Autowired
   private AddressRepository addressRepository;
 
@@ -51,23 +61,33 @@ public class AddressControllerTest {
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private TokenCache tokenCache;
+
   @Autowired
   private MockMvc mockMvc;
 
   @BeforeEach
   void setUp() {
+    tokenCache.invalidateAll();
     addressRepository.deleteAll();
     contactRepository.deleteAll();
+    sessionRepository.deleteAll();
     userRepository.deleteAll();
 
     User user = new User();
     user.setUsername("test");
     user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
     user.setName("Test");
-    user.setToken("test");
-    user.setTokenExpiredAt(System.currentTimeMillis() + 10000000000L);
     userRepository.save(user);
 
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 10000000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
     Contact contact = new Contact();
     contact.setId("test");
     contact.setUser(user);
@@ -347,4 +367,96 @@ public class AddressControllerTest {
           assertEquals(100, response.getData().size());
         });
   }
+
+  @Test
+  void listAddressNotModified() throws Exception {
+    String etag = mockMvc.perform(
+        get("/api/contacts/test/addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+
+    mockMvc.perform(
+        get("/api/contacts/test/addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(status().isNotModified());
+
+    CreateAddressRequest request = new CreateAddressRequest();
+    request.setCity("Jakarta");
+    request.setCountry("Indonesia");
+
+    mockMvc.perform(
+        post("/api/contacts/test/addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(status().isOk());
+
+    mockMvc.perform(
+        get("/api/contacts/test/addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(status().isOk())
+        .andDo(result -> {
+          assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+
+          WebResponse<List<AddressResponse>> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertEquals(1, response.getData().size());
+        });
+  }
+
+  @Test
+  void patchAddressSuccess() throws Exception {
+    Contact contact = contactRepository.findById("test").orElseThrow();
+
+    Address address = new Address();
+    address.setId("test");
+    address.setContact(contact);
+    address.setCity("Jakarta");
+    address.setCountry("Indonesia");
+    address.setPostalCode("123123");
+    addressRepository.save(address);
+
+    mockMvc.perform(
+        patch("/api/contacts/test/addresses/test")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\":0,\"city\":\"Bandung\",\"postalCode\":null}")
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(status().isOk())
+        .andDo(result -> {
+          WebResponse<VersionResponse> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNull(response.getErrors());
+          assertEquals(1L, response.getData().getVersion());
+        });
+
+    Address patched = addressRepository.findById("test").orElseThrow();
+    assertEquals("Bandung", patched.getCity());
+    assertEquals("Indonesia", patched.getCountry());
+    assertNull(patched.getPostalCode());
+    assertEquals(1L, contactRepository.findById("test").orElseThrow().getVersion());
+
+    mockMvc.perform(
+        patch("/api/contacts/test/addresses/test")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\":0,\"city\":\"Surabaya\"}")
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(status().isConflict());
+
+    assertEquals("Bandung", addressRepository.findById("test").orElseThrow().getCity());
+    assertEquals(1L, contactRepository.findById("test").orElseThrow().getVersion());
+  }
 }
@@ -0,0 +1,135 @@
+package com.learn.learn_spring_rest.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.LoginUserRequest;
+import com.learn.learn_spring_rest.model.WebResponse;
+import com.learn.learn_spring_rest.repository.SessionRepository;
+import com.learn.learn_spring_rest.repository.UserRepository;
+import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.PasswordHasher;
+import com.learn.learn_spring_rest.security.TokenCache;
+
+// one hashing thread and one queue slot, so a couple of blocked tasks saturate the hasher
+@SpringBootTest(properties = {
+    "app.auth.hashing.threads=1",
+    "app.auth.hashing.queue-capacity=1",
+    "app.auth.hashing.timeout=PT0.5S"
+})
+@AutoConfigureMockMvc
+class AuthControllerBusyTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private SessionRepository sessionRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private PasswordHasher passwordHasher;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private ThreadPoolExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    tokenCache.invalidateAll();
+    sessionRepository.deleteAll();
+    userRepository.deleteAll();
+
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt(4)));
+    userRepository.save(user);
+
+    executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHasher, "executor");
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    release.countDown();
+
+    // let the pool drain so the next test starts with an idle hasher
+    long deadline = System.currentTimeMillis() + 5000L;
+    while ((executor.getActiveCount() > 0 || !executor.getQueue().isEmpty())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+  }
+
+  @Test
+  void loginServiceUnavailableWhenQueueFull() throws Exception {
+    executor.submit(this::block);
+    executor.submit(this::block);
+
+    login();
+  }
+
+  @Test
+  void loginServiceUnavailableOnTimeout() throws Exception {
+    // the login task is queued behind this one and never starts within the timeout
+    executor.submit(this::block);
+
+    login();
+  }
+
+  private void login() throws Exception {
+    LoginUserRequest request = new LoginUserRequest();
+    request.setUsername("test");
+    request.setPassword("test");
+
+    mockMvc.perform(
+        post("/api/auth/login")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isServiceUnavailable())
+        .andDo(result -> {
+          WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNull(response.getData());
+          assertEquals("Server busy, try again later", response.getErrors());
+        });
+
+    assertEquals(0, sessionRepository.count());
+  }
+
+  private void block() {
+    try {
+      release.await();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
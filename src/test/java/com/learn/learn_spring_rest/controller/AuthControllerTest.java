@@ -2,9 +2,16 @@ package com.learn.learn_spring_rest.controller;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,12 +22,17 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.learn_spring_rest.entity.Session;
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.LoginUserRequest;
+import com.learn.learn_spring_rest.model.RefreshTokenRequest;
 import com.learn.learn_spring_rest.model.TokenResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
+import com.learn.learn_spring_rest.repository.SessionRepository;
 import com.learn.learn_spring_rest.repository.UserRepository;
 import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.PasswordHasher;
+import com.learn.learn_spring_rest.security.TokenCache;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -31,11 +43,22 @@ public class AuthControllerTest {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private SessionRepository sessionRepository;
+
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private PasswordHasher passwordHasher;
+
   @BeforeEach
   void setUp() {
+    tokenCache.invalidateAll();
+    sessionRepository.deleteAll();
     userRepository.deleteAll();
   }
 
@@ -115,14 +138,225 @@ public class AuthControllerTest {
 
           assertNotNull(response.getData().getToken());
           assertNotNull(response.getData().getExpiredAt());
+          assertTrue(response.getData().getExpiredAt() > System.currentTimeMillis() + 29L * 24 * 60 * 60 * 1000);
+
+          Session sessionDb = sessionRepository.findById(response.getData().getToken()).orElse(null);
+          assertNotNull(sessionDb);
+          assertEquals("test", sessionDb.getUser().getUsername());
+          assertEquals(sessionDb.getExpiredAt(), response.getData().getExpiredAt());
+        });
+  }
+
+  @Test
+  void loginRehashesPasswordWithOutdatedCost() throws Exception {
+    String outdated = BCrypt.hashpw("test", BCrypt.gensalt(4));
+
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(outdated);
+    userRepository.save(user);
+
+    LoginUserRequest request = new LoginUserRequest();
+    request.setUsername("test");
+    request.setPassword("test");
+
+    mockMvc.perform(
+        post("/api/auth/login")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isOk());
+
+    User userDb = userRepository.findById("test").orElse(null);
+    assertNotNull(userDb);
+    assertNotEquals(outdated, userDb.getPassword());
+    assertFalse(passwordHasher.needsRehash(userDb.getPassword()));
+    assertTrue(BCrypt.checkpw("test", userDb.getPassword()));
+  }
+
+  @Test
+  void loginKeepsPasswordWithHigherCost() throws Exception {
+    String stronger = BCrypt.hashpw("test", BCrypt.gensalt(passwordHasher.getCost() + 1));
+
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(stronger);
+    userRepository.save(user);
+
+    LoginUserRequest request = new LoginUserRequest();
+    request.setUsername("test");
+    request.setPassword("test");
+
+    mockMvc.perform(
+        post("/api/auth/login")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isOk());
+
+    User userDb = userRepository.findById("test").orElse(null);
+    assertNotNull(userDb);
+    assertEquals(stronger, userDb.getPassword());
+  }
+
+  @Test
+  void loginTwiceKeepsBothSessions() throws Exception {
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+    userRepository.save(user);
+
+    LoginUserRequest request = new LoginUserRequest();
+    request.setUsername("test");
+    request.setPassword("test");
+
+    for (int i = 0; i < 2; i++) {
+      mockMvc.perform(
+          post("/api/auth/login")
+              .accept(MediaType.APPLICATION_JSON)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(objectMapper.writeValueAsString(request)))
+          .andExpectAll(
+              status().isOk());
+    }
+
+    assertEquals(2, sessionRepository.count());
+  }
+
+  @Test
+  void refreshFailedInvalidToken() throws Exception {
+    RefreshTokenRequest request = new RefreshTokenRequest();
+    request.setRefreshToken("invalid");
 
-          User userDb = userRepository.findById("test").orElse(null);
-          assertNotNull(userDb);
-          assertEquals(userDb.getToken(), response.getData().getToken());
-          assertEquals(userDb.getTokenExpiredAt(), response.getData().getExpiredAt());
+    mockMvc.perform(
+        post("/api/auth/refresh")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isUnauthorized())
+        .andDo(result -> {
+          WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNotNull(response.getErrors());
         });
   }
 
+  @Test
+  void refreshSuccess() throws Exception {
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+    userRepository.save(user);
+
+    LoginUserRequest loginRequest = new LoginUserRequest();
+    loginRequest.setUsername("test");
+    loginRequest.setPassword("test");
+
+    String loginBody = mockMvc.perform(
+        post("/api/auth/login")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(loginRequest)))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    WebResponse<TokenResponse> login = objectMapper.readValue(loginBody, new TypeReference<>() {
+    });
+    assertNotNull(login.getData().getRefreshToken());
+
+    RefreshTokenRequest request = new RefreshTokenRequest();
+    request.setRefreshToken(login.getData().getRefreshToken());
+
+    mockMvc.perform(
+        post("/api/auth/refresh")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<TokenResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNull(response.getErrors());
+          assertNotNull(response.getData().getToken());
+          assertNotEquals(login.getData().getToken(), response.getData().getToken());
+          assertNotEquals(login.getData().getRefreshToken(), response.getData().getRefreshToken());
+
+          assertFalse(sessionRepository.existsById(login.getData().getToken()));
+          assertTrue(sessionRepository.existsById(response.getData().getToken()));
+        });
+
+    // a refresh token can only be used once
+    mockMvc.perform(
+        post("/api/auth/refresh")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isUnauthorized());
+  }
+
+  @Test
+  void refreshConcurrentlyOnlyOnce() throws Exception {
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+    userRepository.save(user);
+
+    LoginUserRequest loginRequest = new LoginUserRequest();
+    loginRequest.setUsername("test");
+    loginRequest.setPassword("test");
+
+    WebResponse<TokenResponse> login = objectMapper.readValue(mockMvc.perform(
+        post("/api/auth/login")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(loginRequest)))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+
+    RefreshTokenRequest request = new RefreshTokenRequest();
+    request.setRefreshToken(login.getData().getRefreshToken());
+    String content = objectMapper.writeValueAsString(request);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Integer> statuses = new ArrayList<>();
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> mockMvc.perform(
+            post("/api/auth/refresh")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content))
+            .andReturn().getResponse().getStatus()));
+      }
+      for (Future<Integer> future : futures) {
+        statuses.add(future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // one refresh wins, the others are refused and mint nothing
+    assertEquals(1, statuses.stream().filter(status -> status == 200).count());
+    assertEquals(7, statuses.stream().filter(status -> status == 401).count());
+    assertEquals(1, sessionRepository.count());
+  }
+
   @Test
   void logoutFailed() throws Exception {
     mockMvc.perform(
@@ -142,10 +376,15 @@ public class AuthControllerTest {
     user.setName("test");
     user.setUsername("test");
     user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
-    user.setToken("token");
-    user.setTokenExpiredAt(System.currentTimeMillis() + 1000000L);
     userRepository.save(user);
 
+    Session session = new Session();
+    session.setToken("token");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 1000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
     mockMvc.perform(
         delete("/api/auth/logout")
             .accept(MediaType.APPLICATION_JSON)
@@ -159,10 +398,51 @@ public class AuthControllerTest {
           assertNull(response.getErrors());
           assertEquals("OK", response.getData());
 
-          User userDB = userRepository.findById("test").orElse(null);
-          assertNotNull(userDB);
-          assertNull(userDB.getToken());
-          assertNull(userDB.getTokenExpiredAt());
+          assertFalse(sessionRepository.existsById("token"));
+          assertTrue(userRepository.existsById("test"));
+        });
+  }
+
+  @Test
+  void logoutInvalidatesCachedToken() throws Exception {
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+    userRepository.save(user);
+
+    Session session = new Session();
+    session.setToken("token");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 1000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "token"))
+        .andExpectAll(
+            status().isOk());
+
+    mockMvc.perform(
+        delete("/api/auth/logout")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "token"))
+        .andExpectAll(
+            status().isOk());
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "token"))
+        .andExpectAll(
+            status().isUnauthorized())
+        .andDo(result -> {
+          WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNotNull(response.getErrors());
         });
   }
 }
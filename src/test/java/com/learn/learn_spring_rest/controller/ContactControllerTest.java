@@ -1,37 +1,71 @@
 package com.learn.learn_spring_rest.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.learn_spring_rest.entity.Address;
 import com.learn.learn_spring_rest.entity.Contact;
+import com.learn.learn_spring_rest.entity.Session;
 import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.BulkContactResult;
 import com.learn.learn_spring_rest.model.ContactResponse;
 import com.learn.learn_spring_rest.model.CreateContactRequest;
+import com.learn.learn_spring_rest.model.ImportContactResponse;
 import com.learn.learn_spring_rest.model.UpdateContactRequest;
+import com.learn.learn_spring_rest.model.VersionResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
+import com.learn.learn_spring_rest.repository.AddressRepository;
+import com.learn.learn_spring_rest.repository.ContactCounterRepository;
 import com.learn.learn_spring_rest.repository.ContactRepository;
+import com.learn.learn_spring_rest.repository.SessionRepository;
 import com.learn.learn_spring_rest.repository.UserRepository;
+import com.learn.learn_spring_rest.search.ContactLookupCache;
+import com.learn.learn_spring_rest.search.ContactSearchIndex;
 import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.TokenCache;
+import com.learn.learn_spring_rest.service.ContactImportService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -43,24 +77,62 @@ public class ContactControllerTest {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private SessionRepository sessionRepository;
+
   @Autowired
   private ContactRepository contactRepository;
 
+  @Autowired
+  private ContactCounterRepository contactCounterRepository;
+
+  @Autowired
+  private AddressRepository addressRepository;
+
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private ContactSearchIndex contactSearchIndex;
+
+  @Autowired
+  private ContactLookupCache contactLookupCache;
+
+  @Autowired
+  private ContactImportService contactImportService;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
   @BeforeEach
   void setUp() {
+    tokenCache.invalidateAll();
+    contactSearchIndex.invalidateAll();
+    contactLookupCache.invalidateAll();
+    addressRepository.deleteAll();
     contactRepository.deleteAll();
+    contactCounterRepository.deleteAll();
+    sessionRepository.deleteAll();
     userRepository.deleteAll();
 
     User user = new User();
     user.setUsername("test");
     user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
     user.setName("Test");
-    user.setToken("test");
-    user.setTokenExpiredAt(System.currentTimeMillis() + 10000000000L);
     userRepository.save(user);
+
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 10000000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
   }
 
   @Test
@@ -119,7 +191,447 @@ public class ContactControllerTest {
           assertEquals("0213123", response.getData().getPhone());
 
           assertTrue(contactRepository.existsById(response.getData().getId()));
+          assertEquals(1L, contactCounterRepository.findById("test").orElseThrow().getTotal());
+        });
+  }
+
+  @Test
+  void createContactConcurrentlyWithoutCounter() throws Exception {
+    // no contact_counters row yet, every create races to seed it
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("John " + i);
+        request.setLastName("Doe");
+        statuses.add(executor.submit(() -> mockMvc.perform(
+            post("/api/contacts")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request))
+                .header("X-API-TOKEN", "test"))
+            .andReturn().getResponse().getStatus()));
+      }
+      for (Future<Integer> status : statuses) {
+        assertEquals(200, status.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(16L, contactCounterRepository.findById("test").orElseThrow().getTotal());
+  }
+
+  @Test
+  void bulkContactSuccess() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact existing = new Contact();
+    existing.setId(UUID.randomUUID().toString());
+    existing.setUser(user);
+    existing.setFirstName("Eko");
+    existing.setLastName("Khannedy");
+    contactRepository.save(existing);
+
+    Contact removed = new Contact();
+    removed.setId(UUID.randomUUID().toString());
+    removed.setUser(user);
+    removed.setFirstName("Joko");
+    removed.setLastName("Morro");
+    contactRepository.save(removed);
+
+    CreateContactRequest john = new CreateContactRequest();
+    john.setFirstName("John");
+    john.setLastName("Doe");
+    CreateContactRequest invalid = new CreateContactRequest();
+    invalid.setFirstName("");
+
+    // update items are written as maps because the id of an UpdateContactRequest is never serialized
+    Map<String, Object> request = Map.of(
+        "create", List.of(john, invalid),
+        "update", List.of(
+            Map.of("id", existing.getId(), "firstName", "Eko Kurniawan", "lastName", "Khannedy"),
+            Map.of("id", "missing", "firstName", "Nobody")),
+        "delete", List.of(removed.getId(), "missing"));
+
+    mockMvc.perform(
+        post("/api/contacts/bulk")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<List<BulkContactResult>> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNull(response.getErrors());
+
+          List<BulkContactResult> results = response.getData();
+          assertEquals(6, results.size());
+          assertEquals(List.of(200, 400, 200, 404, 200, 404), results.stream().map(BulkContactResult::getStatus).toList());
+          assertEquals(List.of("create", "create", "update", "update", "delete", "delete"),
+              results.stream().map(BulkContactResult::getOperation).toList());
+          assertNotNull(results.get(1).getErrors());
+
+          Contact created = contactRepository.findById(results.get(0).getId()).orElseThrow();
+          assertEquals("John", created.getFirstName());
+          assertEquals("Eko Kurniawan", contactRepository.findById(existing.getId()).orElseThrow().getFirstName());
+          assertFalse(contactRepository.existsById(removed.getId()));
+          assertEquals(2L, contactCounterRepository.findById("test").orElseThrow().getTotal());
+        });
+  }
+
+  @Test
+  void getContactExpandAddresses() throws Exception {
+    Contact contact = saveContactWithAddresses("john", 2);
+
+    mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .queryParam("expand", "addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<ContactResponse> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+
+          assertNull(response.getErrors());
+          assertEquals(contact.getId(), response.getData().getId());
+          assertEquals(2, response.getData().getAddresses().size());
+        });
+
+    mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<ContactResponse> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+
+          assertNull(response.getData().getAddresses());
+        });
+  }
+
+  @Test
+  void searchContactExpandAddresses() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      saveContactWithAddresses("john " + i, i);
+    }
+
+    for (String cursor : new String[] { null, "" }) {
+      MockHttpServletRequestBuilder request = get("/api/contacts")
+          .queryParam("name", "john")
+          .queryParam("expand", "addresses")
+          .accept(MediaType.APPLICATION_JSON)
+          .header("X-API-TOKEN", "test");
+      if (cursor != null) {
+        request.queryParam("cursor", cursor);
+      }
+
+      mockMvc.perform(request)
+          .andExpectAll(
+              status().isOk())
+          .andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+                result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+
+            assertNull(response.getErrors());
+            assertEquals(3, response.getData().size());
+            for (ContactResponse contact : response.getData()) {
+              int expected = Integer.parseInt(contact.getFirstName().substring("john ".length()));
+              assertEquals(expected, contact.getAddresses().size());
+            }
+          });
+    }
+  }
+
+  @Test
+  void getContactNotModified() throws Exception {
+    Contact contact = saveContactWithAddresses("john", 1);
+
+    String etag = mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+
+    mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isNotModified());
+
+    // the expanded contact is another representation and does not match the plain one's tag
+    String expandedEtag = mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .queryParam("expand", "addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotEquals(etag, expandedEtag);
+
+    mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .queryParam("expand", "addresses")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, expandedEtag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isNotModified());
+
+    UpdateContactRequest request = new UpdateContactRequest();
+    request.setFirstName("jane");
+
+    mockMvc.perform(
+        put("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+
+          WebResponse<ContactResponse> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertEquals("jane", response.getData().getFirstName());
+          assertEquals(1L, response.getData().getVersion());
+        });
+  }
+
+  @Test
+  void searchContactNotModified() throws Exception {
+    saveContactWithAddresses("john", 0);
+
+    String etag = mockMvc.perform(
+        get("/api/contacts")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+
+    mockMvc.perform(
+        get("/api/contacts")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isNotModified());
+
+    saveContactWithAddresses("jane", 0);
+    contactSearchIndex.invalidateAll();
+
+    mockMvc.perform(
+        get("/api/contacts")
+            .accept(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+  }
+
+  @Test
+  void patchContactSuccess() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName("john");
+    contact.setLastName("doe");
+    contact.setEmail("johndoe@example.com");
+    contact.setPhone("0123123");
+    contactRepository.save(contact);
+
+    Map<String, Object> request = new HashMap<>();
+    request.put("version", 0);
+    request.put("lastName", "smith");
+    request.put("phone", "+62 812-3456");
+    request.put("email", null);
+
+    mockMvc.perform(
+        patch("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<VersionResponse> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+
+          assertNull(response.getErrors());
+          assertEquals(contact.getId(), response.getData().getId());
+          assertEquals(1L, response.getData().getVersion());
         });
+
+    Contact patched = contactRepository.findById(contact.getId()).orElseThrow();
+    assertEquals("john", patched.getFirstName());
+    assertEquals("smith", patched.getLastName());
+    assertNull(patched.getEmail());
+    assertNull(patched.getEmailNormalized());
+    assertEquals("+62 812-3456", patched.getPhone());
+    assertEquals("628123456", patched.getPhoneDigits());
+    assertEquals(1L, patched.getVersion());
+  }
+
+  @Test
+  void patchContactInvalidFields() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName("john");
+    contact.setLastName("doe");
+    contact.setEmail("johndoe@example.com");
+    contact.setPhone("0123123");
+    contactRepository.save(contact);
+
+    List<Map<String, Object>> requests = new ArrayList<>();
+    requests.add(new HashMap<>(Map.of("firstName", " ")));
+    requests.add(new HashMap<>(Map.of("firstName", "a".repeat(101))));
+    requests.add(new HashMap<>(Map.of("email", "wrongemail")));
+    requests.add(new HashMap<>(Map.of("phone", "1".repeat(101))));
+    Map<String, Object> nullFirstName = new HashMap<>();
+    nullFirstName.put("firstName", null);
+    requests.add(nullFirstName);
+    Map<String, Object> nullLastName = new HashMap<>();
+    nullLastName.put("lastName", null);
+    requests.add(nullLastName);
+
+    for (Map<String, Object> request : requests) {
+      request.put("version", 0);
+
+      mockMvc.perform(
+          patch("/api/contacts/" + contact.getId())
+              .accept(MediaType.APPLICATION_JSON)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(objectMapper.writeValueAsString(request))
+              .header("X-API-TOKEN", "test"))
+          .andExpectAll(
+              status().isBadRequest())
+          .andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(
+                result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+
+            assertNotNull(response.getErrors(), request.toString());
+          });
+    }
+
+    Contact unchanged = contactRepository.findById(contact.getId()).orElseThrow();
+    assertEquals("john", unchanged.getFirstName());
+    assertEquals("doe", unchanged.getLastName());
+    assertEquals("johndoe@example.com", unchanged.getEmail());
+    assertEquals("0123123", unchanged.getPhone());
+    assertEquals(0L, unchanged.getVersion());
+  }
+
+  @Test
+  void patchContactConflict() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName("john");
+    contact.setLastName("doe");
+    contactRepository.save(contact);
+
+    for (int expected : new int[] { 200, 409 }) {
+      mockMvc.perform(
+          patch("/api/contacts/" + contact.getId())
+              .accept(MediaType.APPLICATION_JSON)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content("{\"version\":0,\"firstName\":\"jane\"}")
+              .header("X-API-TOKEN", "test"))
+          .andExpectAll(
+              status().is(expected));
+    }
+
+    mockMvc.perform(
+        patch("/api/contacts/" + UUID.randomUUID())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"version\":0,\"firstName\":\"jane\"}")
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isNotFound());
+
+    assertEquals(1L, contactRepository.findById(contact.getId()).orElseThrow().getVersion());
+  }
+
+  @Test
+  void getContactExpandUnknown() throws Exception {
+    Contact contact = saveContactWithAddresses("john", 0);
+
+    mockMvc.perform(
+        get("/api/contacts/" + contact.getId())
+            .queryParam("expand", "phones")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isBadRequest());
+  }
+
+  private Contact saveContactWithAddresses(String firstName, int addresses) {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName(firstName);
+    contact.setLastName("doe");
+    contactRepository.save(contact);
+
+    for (int i = 0; i < addresses; i++) {
+      Address address = new Address();
+      address.setId(UUID.randomUUID().toString());
+      address.setContact(contact);
+      address.setCity("Jakarta " + i);
+      address.setCountry("Indonesia");
+      addressRepository.save(address);
+    }
+    return contact;
   }
 
   @Test
@@ -304,33 +816,108 @@ public class ContactControllerTest {
 
           assertNull(response.getErrors());
           assertEquals("OK", response.getData());
+          assertEquals(0L, contactCounterRepository.findById("test").orElseThrow().getTotal());
         });
   }
 
   @Test
-  void searchContactNotFound() throws Exception {
+  void deleteContactWithAddresses() throws Exception {
+    Contact contact = saveContactWithAddresses("john", 2);
 
     mockMvc.perform(
-        get("/api/contacts")
+        delete("/api/contacts/" + contact.getId())
             .accept(MediaType.APPLICATION_JSON)
-            .contentType(MediaType.APPLICATION_JSON)
             .header("X-API-TOKEN", "test"))
         .andExpectAll(
             status().isOk())
         .andDo(result -> {
-          WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+          WebResponse<String> response = objectMapper.readValue(
               result.getResponse().getContentAsString(),
               new TypeReference<>() {
 
               });
-          assertNull(response.getErrors());
-          assertEquals(0, response.getData().size());
-          assertEquals(0, response.getPaging().getTotalPage());
-          assertEquals(0, response.getPaging().getCurrentPage());
-          assertEquals(10, response.getPaging().getSize());
-        }
 
-        );
+          assertNull(response.getErrors());
+          assertFalse(contactRepository.existsById(contact.getId()));
+          assertEquals(0L, addressRepository.count());
+        });
+  }
+
+  @Test
+  void deleteContactsByFilter() throws Exception {
+    saveContactWithAddresses("john", 2);
+    saveContactWithAddresses("johnny", 0);
+    Contact kept = saveContactWithAddresses("jane", 1);
+
+    mockMvc.perform(
+        delete("/api/contacts")
+            .queryParam("name", "john")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<Long> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+
+              });
+
+          assertNull(response.getErrors());
+          assertEquals(2L, response.getData());
+          assertEquals(1L, contactRepository.count());
+          assertTrue(contactRepository.existsById(kept.getId()));
+          assertEquals(1L, addressRepository.count());
+        });
+  }
+
+  @Test
+  void deleteContactsByFilterRequiresFilter() throws Exception {
+    saveContactWithAddresses("john", 1);
+
+    mockMvc.perform(
+        delete("/api/contacts")
+            .queryParam("name", " ")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isBadRequest())
+        .andDo(result -> {
+          WebResponse<Long> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+
+              });
+
+          assertNotNull(response.getErrors());
+          assertEquals(1L, contactRepository.count());
+        });
+  }
+
+  @Test
+  void searchContactNotFound() throws Exception {
+
+    mockMvc.perform(
+        get("/api/contacts")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+
+              });
+          assertNull(response.getErrors());
+          assertEquals(0, response.getData().size());
+          assertEquals(0, response.getPaging().getTotalPage());
+          assertEquals(0, response.getPaging().getCurrentPage());
+          assertEquals(10, response.getPaging().getSize());
+        }
+
+        );
 
   }
 
@@ -463,4 +1050,693 @@ public class ContactControllerTest {
         });
 
   }
+
+  @Test
+  void searchContactIndexFollowsWrites() throws Exception {
+    // first search builds the index for the user
+    assertEquals(0, searchByName("smith").size());
+
+    CreateContactRequest createRequest = new CreateContactRequest();
+    createRequest.setFirstName("Agent");
+    createRequest.setLastName("Smith");
+    createRequest.setEmail("smith@example.com");
+    createRequest.setPhone("0899889998");
+
+    mockMvc.perform(
+        post("/api/contacts")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(createRequest))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    List<ContactResponse> contacts = searchByName("smith");
+    assertEquals(1, contacts.size());
+    assertEquals("Smith", contacts.get(0).getLastName());
+
+    UpdateContactRequest updateRequest = new UpdateContactRequest();
+    updateRequest.setFirstName("Agent");
+    updateRequest.setLastName("Jones");
+    updateRequest.setEmail("jones@example.com");
+    updateRequest.setPhone("0899889998");
+
+    mockMvc.perform(
+        put("/api/contacts/" + contacts.get(0).getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(updateRequest))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    assertEquals(0, searchByName("smith").size());
+    assertEquals(1, searchByName("jon").size());
+
+    mockMvc.perform(
+        delete("/api/contacts/" + contacts.get(0).getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    assertEquals(0, searchByName("jones").size());
+  }
+
+  @Test
+  void searchContactByFormattedPhone() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName("john");
+    contact.setLastName("doe");
+    contact.setPhone("0812-3456 789");
+    contactRepository.save(contact);
+
+    assertEquals("08123456789", contactRepository.findById(contact.getId()).orElseThrow().getPhoneDigits());
+
+    for (String phone : new String[] { "0812 3456", "(0812)", "6789", "456-789" }) {
+      mockMvc.perform(
+          get("/api/contacts")
+              .queryParam("phone", phone)
+              .accept(MediaType.APPLICATION_JSON)
+              .header("X-API-TOKEN", "test"))
+          .andExpectAll(
+              status().isOk())
+          .andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+                result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+            assertEquals(1, response.getData().size(), phone);
+          });
+    }
+
+    // digits in the middle of the number are neither a prefix nor a suffix
+    mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("phone", "3456")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertEquals(0, response.getData().size());
+        });
+
+    // a phone query without digits matches no number, from the database as from the index
+    ReflectionTestUtils.setField(contactSearchIndex, "enabled", false);
+    try {
+      mockMvc.perform(
+          get("/api/contacts")
+              .queryParam("phone", "no digits")
+              .accept(MediaType.APPLICATION_JSON)
+              .header("X-API-TOKEN", "test"))
+          .andExpectAll(
+              status().isOk())
+          .andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+                result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+            assertEquals(0, response.getData().size());
+          });
+    } finally {
+      ReflectionTestUtils.setField(contactSearchIndex, "enabled", true);
+    }
+
+    mockMvc.perform(
+        delete("/api/contacts")
+            .queryParam("phone", "no digits")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+    assertTrue(contactRepository.existsById(contact.getId()));
+  }
+
+  @Test
+  void searchContactWildcardsMatchLiterally() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    String[][] contacts = { { "50%", "off", "sale_50@example.com" }, { "500", "club", "sale050@example.com" },
+        { "back\\slash", "doe", "back@example.com" }, { "backslash", "doe", "slash@example.com" } };
+    for (String[] values : contacts) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName(values[0]);
+      contact.setLastName(values[1]);
+      contact.setEmail(values[2]);
+      contactRepository.save(contact);
+    }
+
+    // straight to the database queries, the in-memory index matches substrings literally anyway
+    ReflectionTestUtils.setField(contactSearchIndex, "enabled", false);
+    try {
+      assertEquals(List.of("50%"), searchByName("50%").stream().map(ContactResponse::getFirstName).toList());
+      assertEquals(List.of("back\\slash"), searchByName("\\").stream().map(ContactResponse::getFirstName).toList());
+      assertEquals(0, searchByName("5_0").size());
+
+      mockMvc.perform(
+          get("/api/contacts")
+              .queryParam("email", "sale_")
+              .accept(MediaType.APPLICATION_JSON)
+              .header("X-API-TOKEN", "test"))
+          .andExpectAll(
+              status().isOk())
+          .andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+                result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+            assertEquals(1, response.getData().size());
+            assertEquals("sale_50@example.com", response.getData().get(0).getEmail());
+          });
+
+      assertEquals(1, suggest("50%", null).size());
+      assertEquals(0, suggest("_0", null).size());
+      assertEquals(0, suggest("%", null).size());
+    } finally {
+      ReflectionTestUtils.setField(contactSearchIndex, "enabled", true);
+    }
+  }
+
+  @Test
+  void searchContactWithoutTotal() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    for (int i = 0; i < 15; i++) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName("john " + i);
+      contact.setLastName("doe");
+      contact.setEmail("johndoe@example.com");
+      contact.setPhone("0123123");
+
+      contactRepository.save(contact);
+    }
+
+    mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("includeTotal", "false")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNull(response.getErrors());
+          assertEquals(10, response.getData().size());
+          assertNull(response.getPaging().getTotalPage());
+          assertTrue(response.getPaging().getHasNext());
+        });
+
+    mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("includeTotal", "false")
+            .queryParam("page", "1")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<List<ContactResponse>> response = objectMapper.readValue(
+              result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNull(response.getErrors());
+          assertEquals(5, response.getData().size());
+          assertEquals(1, response.getPaging().getCurrentPage());
+          assertFalse(response.getPaging().getHasNext());
+        });
+  }
+
+  @Test
+  void searchContactByCursor() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    for (int i = 0; i < 25; i++) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName("john " + (i % 5));
+      contact.setLastName("doe");
+      contact.setEmail("johndoe@example.com");
+      contact.setPhone("0123123");
+
+      contactRepository.save(contact);
+    }
+
+    Set<String> ids = new HashSet<>();
+    String cursor = "";
+    int pages = 0;
+    while (cursor != null) {
+      String content = mockMvc.perform(
+          get("/api/contacts")
+              .queryParam("name", "john")
+              .queryParam("size", "10")
+              .queryParam("cursor", cursor)
+              .accept(MediaType.APPLICATION_JSON)
+              .header("X-API-TOKEN", "test"))
+          .andExpectAll(
+              status().isOk())
+          .andReturn().getResponse().getContentAsString();
+
+      WebResponse<List<ContactResponse>> response = objectMapper.readValue(content, new TypeReference<>() {
+      });
+      assertNull(response.getErrors());
+      assertNull(response.getPaging().getTotalPage());
+      response.getData().forEach(contact -> ids.add(contact.getId()));
+
+      cursor = response.getPaging().getNextCursor();
+      pages++;
+    }
+
+    assertEquals(3, pages);
+    assertEquals(25, ids.size());
+  }
+
+  @Test
+  void searchContactInvalidCursor() throws Exception {
+    mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("cursor", "not-a-cursor")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isBadRequest());
+  }
+
+  @Test
+  void lookupContactByPhoneOrEmail() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact eko = new Contact();
+    eko.setId(UUID.randomUUID().toString());
+    eko.setUser(user);
+    eko.setFirstName("Eko");
+    eko.setLastName("Khannedy");
+    eko.setEmail("Eko@Example.com");
+    eko.setPhone("0812-3456 789");
+    contactRepository.save(eko);
+
+    Contact budi = new Contact();
+    budi.setId(UUID.randomUUID().toString());
+    budi.setUser(user);
+    budi.setFirstName("Budi");
+    budi.setLastName("Nugraha");
+    budi.setEmail("budi@example.com");
+    budi.setPhone("0899889998");
+    contactRepository.save(budi);
+
+    assertEquals(1, lookup("08123456789", null).size());
+    assertEquals("Eko", lookup("(0812) 3456-789", null).get(0).getFirstName());
+    assertEquals(1, lookup(null, " eko@example.COM").size());
+    assertEquals(2, lookup("0899 889 998", "eko@example.com").size());
+    assertEquals(0, lookup("3456789", null).size());
+  }
+
+  @Test
+  void lookupContactBadRequest() throws Exception {
+    mockMvc.perform(
+        get("/api/contacts/lookup")
+            .queryParam("phone", "no digits")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isBadRequest())
+        .andDo(result -> {
+          WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNotNull(response.getErrors());
+        });
+  }
+
+  @Test
+  void lookupContactAfterUpdate() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName("Eko");
+    contact.setLastName("Khannedy");
+    contact.setEmail("eko@example.com");
+    contactRepository.save(contact);
+
+    assertEquals(1, lookup(null, "eko@example.com").size());
+
+    UpdateContactRequest request = new UpdateContactRequest();
+    request.setFirstName("Eko");
+    request.setLastName("Khannedy");
+    request.setEmail("eko@kurniawan.com");
+
+    mockMvc.perform(
+        put("/api/contacts/" + contact.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    assertEquals(0, lookup(null, "eko@example.com").size());
+    assertEquals(1, lookup(null, "eko@kurniawan.com").size());
+  }
+
+  @Test
+  void searchContactFuzzy() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    String[][] names = { { "John", "Smith" }, { "Jon", "Smyth" }, { "Eko", "Khannedy" } };
+    List<String> ids = new ArrayList<>();
+    for (String[] name : names) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName(name[0]);
+      contact.setLastName(name[1]);
+      contactRepository.save(contact);
+      ids.add(contact.getId());
+    }
+
+    assertEquals(0, searchByName("jhon smith").size());
+
+    List<ContactResponse> contacts = searchFuzzy("jhon smith");
+    assertEquals(2, contacts.size());
+    assertEquals(ids.get(0), contacts.get(0).getId());
+    assertEquals(ids.get(1), contacts.get(1).getId());
+
+    assertEquals(List.of(ids.get(2)), searchFuzzy("khanedy").stream().map(ContactResponse::getId).toList());
+    assertEquals(0, searchFuzzy("zzzz").size());
+
+    mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("name", "jhon")
+            .queryParam("fuzzy", "true")
+            .queryParam("cursor", "")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isBadRequest());
+  }
+
+  @Test
+  void exportContacts() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    for (int i = 0; i < 3; i++) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName("Eko " + i);
+      contact.setLastName("Khannedy");
+      contactRepository.save(contact);
+
+      for (int j = 0; j < i; j++) {
+        Address address = new Address();
+        address.setId(UUID.randomUUID().toString());
+        address.setContact(contact);
+        address.setCity("Jakarta " + j);
+        address.setCountry("Indonesia");
+        addressRepository.save(address);
+      }
+    }
+
+    MvcResult asyncResult = mockMvc.perform(
+        get("/api/contacts/export")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String content = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    String[] lines = content.split("\n");
+    assertEquals(3, lines.length);
+    for (int i = 0; i < lines.length; i++) {
+      ContactResponse contact = objectMapper.readValue(lines[i], ContactResponse.class);
+      assertEquals("Eko " + i, contact.getFirstName());
+      assertEquals(i, contact.getAddresses().size());
+    }
+  }
+
+  @Test
+  void importContactsCsv() throws Exception {
+    String csv = "firstName,lastName,email,phone\r\n"
+        + "Eko,Khannedy,eko@example.com,0899889998\r\n"
+        + ",Morro,joko@example.com,\r\n"
+        + "\"Budi, Jr\",\"Santoso\",,\r\n";
+
+    ImportContactResponse response = importContacts(new MediaType("text", "csv"), csv);
+    assertEquals(2, response.getImported());
+    assertEquals(1, response.getFailed());
+    assertEquals(1, response.getErrors().size());
+    assertEquals(2, response.getErrors().get(0).getRecord());
+
+    List<Contact> contacts = contactRepository.findAll();
+    assertEquals(2, contacts.size());
+    assertTrue(contacts.stream().anyMatch(contact -> contact.getFirstName().equals("Budi, Jr")));
+  }
+
+  @Test
+  void importContactsVCard() throws Exception {
+    String vcard = "BEGIN:VCARD\r\n"
+        + "VERSION:3.0\r\n"
+        + "N:Khannedy;Eko;;;\r\n"
+        + "FN:Eko Khannedy\r\n"
+        + "EMAIL;TYPE=INTERNET:eko@example.com\r\n"
+        + "TEL;TYPE=CELL:0899889998\r\n"
+        + "END:VCARD\r\n";
+
+    ImportContactResponse response = importContacts(new MediaType("text", "vcard"), vcard);
+    assertEquals(1, response.getImported());
+    assertEquals(0, response.getFailed());
+
+    Contact contact = contactRepository.findAll().get(0);
+    assertEquals("Eko", contact.getFirstName());
+    assertEquals("Khannedy", contact.getLastName());
+    assertEquals("eko@example.com", contact.getEmail());
+    assertEquals("0899889998", contact.getPhone());
+  }
+
+  @Test
+  void importContactsNdjson() throws Exception {
+    String ndjson = "{\"firstName\":\"Eko\",\"email\":\"eko@example.com\"}\n"
+        + "not json\n"
+        + "{\"firstName\":\"Joko\"}\n";
+
+    ImportContactResponse response = importContacts(MediaType.APPLICATION_NDJSON, ndjson);
+    assertEquals(2, response.getImported());
+    assertEquals(1, response.getFailed());
+    assertEquals(2, response.getErrors().get(0).getRecord());
+    assertEquals(2, contactRepository.count());
+  }
+
+  @Test
+  void importContactsInBatches() throws Exception {
+    StringBuilder csv = new StringBuilder("firstName,lastName,email,phone\r\n");
+    for (int i = 0; i < 5; i++) {
+      csv.append("Eko ").append(i).append(",Khannedy,,\r\n");
+    }
+
+    Object batchSize = ReflectionTestUtils.getField(contactImportService, "batchSize");
+    ReflectionTestUtils.setField(contactImportService, "batchSize", 2);
+    try {
+      ImportContactResponse response = importContacts(new MediaType("text", "csv"), csv.toString());
+      assertEquals(5, response.getImported());
+      assertEquals(0, response.getFailed());
+    } finally {
+      ReflectionTestUtils.setField(contactImportService, "batchSize", batchSize);
+    }
+
+    assertEquals(5, contactRepository.count());
+    assertEquals(5L, contactCounterRepository.findById("test").orElseThrow().getTotal());
+
+    // a written batch is not kept in the persistence context the next one is written in
+    User user = userRepository.findById("test").orElseThrow();
+    Contact contact = new Contact();
+    contact.setId(UUID.randomUUID().toString());
+    contact.setUser(user);
+    contact.setFirstName("Joko");
+    contact.setLastName("Morro");
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      contactRepository.insertAll(List.of(contact));
+      assertFalse(entityManager.contains(contact));
+    });
+    assertTrue(contactRepository.existsById(contact.getId()));
+  }
+
+  @Test
+  void importContactsUnsupportedMediaType() throws Exception {
+    mockMvc.perform(
+        post("/api/contacts/import")
+            .contentType(MediaType.APPLICATION_XML)
+            .content("<contacts/>")
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isUnsupportedMediaType());
+
+    assertEquals(0, contactRepository.count());
+  }
+
+  private ImportContactResponse importContacts(MediaType contentType, String body) throws Exception {
+    String content = mockMvc.perform(
+        post("/api/contacts/import")
+            .contentType(contentType)
+            .accept(MediaType.APPLICATION_JSON)
+            .content(body)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    WebResponse<ImportContactResponse> response = objectMapper.readValue(content,
+        new TypeReference<WebResponse<ImportContactResponse>>() {
+        });
+    assertNull(response.getErrors());
+    return response.getData();
+  }
+
+  @Test
+  void suggestContactByPrefix() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    String[][] names = { { "John", "Doe" }, { "Johnny", "Cash" }, { "Jane", "Johnson" }, { "Eko", "Khannedy" } };
+    List<String> ids = new ArrayList<>();
+    for (String[] name : names) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName(name[0]);
+      contact.setLastName(name[1]);
+      contactRepository.save(contact);
+      ids.add(contact.getId());
+    }
+
+    List<String> suggestions = suggest("Joh", null);
+    assertEquals(3, suggestions.size());
+    assertEquals(ids.get(0), suggestions.get(0));
+    assertFalse(suggestions.contains(ids.get(3)));
+
+    assertEquals(2, suggest("joh", 2).size());
+    assertEquals(List.of(ids.get(1)), suggest("johnny c", null));
+
+    mockMvc.perform(
+        delete("/api/contacts/" + ids.get(0))
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    assertEquals(2, suggest("joh", null).size());
+    assertEquals(0, suggest("doe", null).size());
+  }
+
+  @Test
+  void suggestContactBadRequest() throws Exception {
+    mockMvc.perform(
+        get("/api/contacts/suggest")
+            .queryParam("prefix", " ")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isBadRequest())
+        .andDo(result -> {
+          WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNotNull(response.getErrors());
+        });
+  }
+
+  private List<String> suggest(String prefix, Integer limit) throws Exception {
+    MockHttpServletRequestBuilder request = get("/api/contacts/suggest")
+        .queryParam("prefix", prefix)
+        .accept(MediaType.APPLICATION_JSON)
+        .header("X-API-TOKEN", "test");
+    if (limit != null) {
+      request.queryParam("limit", String.valueOf(limit));
+    }
+
+    String content = mockMvc.perform(request)
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    WebResponse<List<String>> response = objectMapper.readValue(content, new TypeReference<>() {
+    });
+    assertNull(response.getErrors());
+    return response.getData();
+  }
+
+  private List<ContactResponse> lookup(String phone, String email) throws Exception {
+    MockHttpServletRequestBuilder request = get("/api/contacts/lookup")
+        .accept(MediaType.APPLICATION_JSON)
+        .header("X-API-TOKEN", "test");
+    if (phone != null) {
+      request.queryParam("phone", phone);
+    }
+    if (email != null) {
+      request.queryParam("email", email);
+    }
+
+    String content = mockMvc.perform(request)
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    WebResponse<List<ContactResponse>> response = objectMapper.readValue(content, new TypeReference<>() {
+    });
+    assertNull(response.getErrors());
+    return response.getData();
+  }
+
+  private List<ContactResponse> searchFuzzy(String name) throws Exception {
+    String content = mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("name", name)
+            .queryParam("fuzzy", "true")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    WebResponse<List<ContactResponse>> response = objectMapper.readValue(content, new TypeReference<>() {
+    });
+    assertNull(response.getErrors());
+    return response.getData();
+  }
+
+  private List<ContactResponse> searchByName(String name) throws Exception {
+    String content = mockMvc.perform(
+        get("/api/contacts")
+            .queryParam("name", name)
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    WebResponse<List<ContactResponse>> response = objectMapper.readValue(content, new TypeReference<>() {
+    });
+    assertNull(response.getErrors());
+    return response.getData();
+  }
 }
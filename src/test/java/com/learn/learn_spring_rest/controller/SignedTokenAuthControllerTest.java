@@ -0,0 +1,220 @@
+package com.learn.learn_spring_rest.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.learn_spring_rest.entity.Session;
+import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.LoginUserRequest;
+import com.learn.learn_spring_rest.model.RefreshTokenRequest;
+import com.learn.learn_spring_rest.model.TokenResponse;
+import com.learn.learn_spring_rest.model.WebResponse;
+import com.learn.learn_spring_rest.repository.SessionRepository;
+import com.learn.learn_spring_rest.repository.UserRepository;
+import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.SignedTokenService;
+import com.learn.learn_spring_rest.security.TokenCache;
+
+@SpringBootTest(properties = {
+    "app.auth.token-mode=signed",
+    "app.auth.signed-token.secret=signed-token-test-secret-0123456789"
+})
+@AutoConfigureMockMvc
+class SignedTokenAuthControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private SessionRepository sessionRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private SignedTokenService signedTokenService;
+
+  @BeforeEach
+  void setUp() {
+    tokenCache.invalidateAll();
+    sessionRepository.deleteAll();
+    userRepository.deleteAll();
+
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+    userRepository.save(user);
+  }
+
+  @Test
+  void loginIssuesSignedToken() throws Exception {
+    TokenResponse token = login();
+
+    SignedTokenService.SignedToken signedToken = signedTokenService.verify(token.getToken()).orElseThrow();
+    assertEquals("test", signedToken.username());
+    assertEquals(token.getExpiredAt(), signedToken.expiredAt());
+    assertTrue(sessionRepository.existsById(signedToken.sessionId()));
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token.getToken()))
+        .andExpectAll(
+            status().isOk());
+  }
+
+  @Test
+  void tamperedTokenUnauthorized() throws Exception {
+    TokenResponse token = login();
+    SignedTokenService.SignedToken signedToken = signedTokenService.verify(token.getToken()).orElseThrow();
+
+    // same signature over claims naming someone else
+    String claims = "admin:" + signedToken.expiredAt() + ":" + signedToken.sessionId();
+    String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+    String tampered = payload + token.getToken().substring(token.getToken().indexOf('.'));
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", tampered))
+        .andExpectAll(
+            status().isUnauthorized())
+        .andDo(result -> {
+          WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<>() {
+              });
+          assertNotNull(response.getErrors());
+        });
+  }
+
+  @Test
+  void expiredTokenUnauthorized() throws Exception {
+    User user = userRepository.findById("test").orElseThrow();
+
+    Session session = new Session();
+    session.setToken("session");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() - 1000L);
+    session.setCreatedAt(System.currentTimeMillis() - 2000L);
+    sessionRepository.save(session);
+
+    String token = signedTokenService.issue("test", session.getExpiredAt(), "session");
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token))
+        .andExpectAll(
+            status().isUnauthorized());
+  }
+
+  @Test
+  void logoutRevokesToken() throws Exception {
+    TokenResponse token = login();
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token.getToken()))
+        .andExpectAll(
+            status().isOk());
+
+    mockMvc.perform(
+        delete("/api/auth/logout")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token.getToken()))
+        .andExpectAll(
+            status().isOk());
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token.getToken()))
+        .andExpectAll(
+            status().isUnauthorized());
+
+    // a restart or another instance starts with an empty cache and still rejects it
+    tokenCache.invalidateAll();
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token.getToken()))
+        .andExpectAll(
+            status().isUnauthorized());
+  }
+
+  @Test
+  void refreshRevokesOldToken() throws Exception {
+    TokenResponse token = login();
+
+    RefreshTokenRequest request = new RefreshTokenRequest();
+    request.setRefreshToken(token.getRefreshToken());
+
+    WebResponse<TokenResponse> refreshed = objectMapper.readValue(mockMvc.perform(
+        post("/api/auth/refresh")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+
+    tokenCache.invalidateAll();
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", token.getToken()))
+        .andExpectAll(
+            status().isUnauthorized());
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .header("X-API-TOKEN", refreshed.getData().getToken()))
+        .andExpectAll(
+            status().isOk());
+  }
+
+  private TokenResponse login() throws Exception {
+    LoginUserRequest request = new LoginUserRequest();
+    request.setUsername("test");
+    request.setPassword("test");
+
+    WebResponse<TokenResponse> response = objectMapper.readValue(mockMvc.perform(
+        post("/api/auth/login")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpectAll(
+            status().isOk())
+        .andReturn().getResponse().getContentAsString(), new TypeReference<>() {
+        });
+    return response.getData();
+  }
+}
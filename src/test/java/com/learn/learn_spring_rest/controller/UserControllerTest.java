@@ -14,13 +14,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.learn_spring_rest.entity.Session;
 import com.learn.learn_spring_rest.entity.User;
 import com.learn.learn_spring_rest.model.RegisterUserRequest;
 import com.learn.learn_spring_rest.model.UpdateUserRequest;
 import com.learn.learn_spring_rest.model.UserResponse;
 import com.learn.learn_spring_rest.model.WebResponse;
+import com.learn.learn_spring_rest.repository.SessionRepository;
 import com.learn.learn_spring_rest.repository.UserRepository;
 import com.learn.learn_spring_rest.security.BCrypt;
+import com.learn.learn_spring_rest.security.SessionRenewalWriter;
+import com.learn.learn_spring_rest.security.TokenCache;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -32,11 +36,22 @@ class UserControllerTest {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private SessionRepository sessionRepository;
+
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private TokenCache tokenCache;
+
+  @Autowired
+  private SessionRenewalWriter sessionRenewalWriter;
+
   @BeforeEach
   void setUp() {
+    tokenCache.invalidateAll();
+    sessionRepository.deleteAll();
     userRepository.deleteAll();
   }
 
@@ -131,12 +146,17 @@ class UserControllerTest {
     User user = new User();
     user.setName("test");
     user.setUsername("test");
-    user.setToken("test");
     user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
-    user.setTokenExpiredAt(System.currentTimeMillis() + 1000000000L);
 
     userRepository.save(user);
 
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 1000000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
     mockMvc.perform(
         get("/api/users/current")
             .accept(MediaType.APPLICATION_JSON).header("X-API-TOKEN", "test"))
@@ -152,17 +172,52 @@ class UserControllerTest {
         });
   }
 
+  @Test
+  void getUserRenewsSessionNearExpiry() throws Exception {
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+
+    userRepository.save(user);
+
+    long expiredAt = System.currentTimeMillis() + 60000L;
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(expiredAt);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON).header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    sessionRenewalWriter.flush();
+
+    Session sessionDB = sessionRepository.findById("test").orElse(null);
+    assertNotNull(sessionDB);
+    assertTrue(sessionDB.getExpiredAt() > expiredAt);
+  }
+
   @Test
   void getUserTokenExpired() throws Exception {
     User user = new User();
     user.setName("test");
     user.setUsername("test");
-    user.setToken("test");
     user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
-    user.setTokenExpiredAt(System.currentTimeMillis() + -1000000000L);
 
     userRepository.save(user);
 
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + -1000000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
     mockMvc.perform(
         get("/api/users/current")
             .accept(MediaType.APPLICATION_JSON).header("X-API-TOKEN", "test"))
@@ -200,12 +255,17 @@ class UserControllerTest {
     User user = new User();
     user.setName("test");
     user.setUsername("test");
-    user.setToken("test");
     user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
-    user.setTokenExpiredAt(System.currentTimeMillis() + 1000000000L);
 
     userRepository.save(user);
 
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 1000000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
     UpdateUserRequest request = new UpdateUserRequest();
     request.setName("John");
     request.setPassword("test123");
@@ -233,4 +293,54 @@ class UserControllerTest {
         });
   }
 
+  @Test
+  void getUserAfterUpdateWithCachedToken() throws Exception {
+    User user = new User();
+    user.setName("test");
+    user.setUsername("test");
+    user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+
+    userRepository.save(user);
+
+    Session session = new Session();
+    session.setToken("test");
+    session.setUser(user);
+    session.setExpiredAt(System.currentTimeMillis() + 1000000000L);
+    session.setCreatedAt(System.currentTimeMillis());
+    sessionRepository.save(session);
+
+    // warms the token cache
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON).header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    UpdateUserRequest request = new UpdateUserRequest();
+    request.setName("John");
+
+    mockMvc.perform(
+        patch("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request))
+            .header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk());
+
+    // the cache only holds the session, the user is read again for each request
+    mockMvc.perform(
+        get("/api/users/current")
+            .accept(MediaType.APPLICATION_JSON).header("X-API-TOKEN", "test"))
+        .andExpectAll(
+            status().isOk())
+        .andDo(result -> {
+          WebResponse<UserResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+              new TypeReference<WebResponse<UserResponse>>() {
+              });
+          assertNull(response.getErrors());
+          assertEquals("John", response.getData().getName());
+        });
+  }
+
 }
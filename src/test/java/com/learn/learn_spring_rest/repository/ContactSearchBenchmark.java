@@ -0,0 +1,122 @@
+package com.learn.learn_spring_rest.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.learn.learn_spring_rest.LearnSpringRestApplication;
+import com.learn.learn_spring_rest.entity.Contact;
+import com.learn.learn_spring_rest.entity.User;
+
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Per-request cost of the old Specification based contact search against the
+ * cached JPQL variants, both running the same query on the configured
+ * database. Run {@link #main(String[])} with the datasource environment set;
+ * add {@code -prof gc} for allocation per operation. No results are recorded
+ * yet, so neither variant is known to be faster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContactSearchBenchmark {
+
+  private static final String USERNAME = "contact-search-benchmark";
+
+  private ConfigurableApplicationContext context;
+
+  private ContactRepository contactRepository;
+
+  private UserRepository userRepository;
+
+  private User user;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(LearnSpringRestApplication.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.jpa.properties.hibernate.show_sql=false");
+    contactRepository = context.getBean(ContactRepository.class);
+    userRepository = context.getBean(UserRepository.class);
+
+    user = new User();
+    user.setUsername(USERNAME);
+    user.setPassword("-");
+    user.setName("Benchmark");
+    userRepository.save(user);
+
+    List<Contact> contacts = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      Contact contact = new Contact();
+      contact.setId(UUID.randomUUID().toString());
+      contact.setUser(user);
+      contact.setFirstName("john " + i);
+      contact.setLastName("doe");
+      contact.setEmail("johndoe@example.com");
+      contact.setPhone("0123123");
+      contacts.add(contact);
+    }
+    contactRepository.saveAll(contacts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    contactRepository.deleteAll(contactRepository.findAllByUser(user));
+    userRepository.delete(user);
+    context.close();
+  }
+
+  @Benchmark
+  public List<Contact> specification() {
+    return contactRepository.findAll(specification("john", "example"), PageRequest.of(0, 10)).getContent();
+  }
+
+  @Benchmark
+  public List<Contact> cachedVariant() {
+    return contactRepository.search(USERNAME, new ContactSearchFilter("john", "example", null, false),
+        PageRequest.of(0, 10)).getContent();
+  }
+
+  // the search as it was built before the variants, rebuilt as a criteria tree on every call
+  private Specification<Contact> specification(String name, String email) {
+    return (root, query, builder) -> {
+      List<Predicate> predicates = new ArrayList<>();
+      predicates.add(builder.equal(root.get("user"), user));
+      predicates.add(builder.or(
+          builder.like(root.get("firstName"), "%" + name + "%"),
+          builder.like(root.get("lastName"), "%" + name + "%")));
+      predicates.add(builder.like(root.get("email"), "%" + email + "%"));
+      return query.where(predicates.toArray(new Predicate[] {})).getRestriction();
+    };
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ContactSearchBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,148 @@
+package com.learn.learn_spring_rest.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.learn.learn_spring_rest.model.ContactResponse;
+import com.learn.learn_spring_rest.model.SearchContactRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ContactSearchIndexTest {
+
+  private final List<ContactResponse> small = contacts("small", 1);
+
+  private final List<ContactResponse> large = contacts("large", 500);
+
+  private ContactSearchIndex contactSearchIndex;
+
+  @BeforeEach
+  void setUp() {
+    long smallBytes = new UserContactIndex(small).estimatedBytes();
+    long largeBytes = new UserContactIndex(large).estimatedBytes();
+    assertTrue(largeBytes > smallBytes * 4);
+
+    contactSearchIndex = new ContactSearchIndex();
+    ReflectionTestUtils.setField(contactSearchIndex, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(contactSearchIndex, "enabled", true);
+    ReflectionTestUtils.setField(contactSearchIndex, "maxSize", DataSize.ofBytes(smallBytes * 4));
+    ReflectionTestUtils.setField(contactSearchIndex, "ttl", Duration.ofMinutes(10));
+    contactSearchIndex.init();
+  }
+
+  @Test
+  void writeDoesNotChangeEvictionOrder() {
+    AtomicInteger aliceLoads = new AtomicInteger();
+    AtomicInteger bobLoads = new AtomicInteger();
+    AtomicInteger carolLoads = new AtomicInteger();
+    ContactResponse written = contacts("alice", 2).get(1);
+    List<ContactResponse> carol = contacts("carol", 1);
+
+    // room for all three users but one byte
+    long aliceBytes = new UserContactIndex(List.of(small.get(0), written)).estimatedBytes();
+    long smallBytes = new UserContactIndex(small).estimatedBytes();
+    long carolBytes = new UserContactIndex(carol).estimatedBytes();
+    ReflectionTestUtils.setField(contactSearchIndex, "maxSize",
+        DataSize.ofBytes(aliceBytes + smallBytes + carolBytes - 1));
+
+    search("alice", counting(small, aliceLoads));
+    search("bob", counting(small, bobLoads));
+
+    // alice was searched least recently, a write for her does not change that
+    contactSearchIndex.saved("alice", written);
+
+    // carol does not fit, which evicts alice and keeps bob
+    search("carol", counting(carol, carolLoads));
+    search("bob", counting(small, bobLoads));
+    assertEquals(1, bobLoads.get());
+    search("alice", counting(small, aliceLoads));
+    assertEquals(2, aliceLoads.get());
+  }
+
+  @Test
+  void indexOverBudgetIsNotCached() {
+    AtomicInteger smallLoads = new AtomicInteger();
+    AtomicInteger largeLoads = new AtomicInteger();
+
+    assertEquals(1, search("alice", counting(small, smallLoads)).orElseThrow().getTotalElements());
+    assertEquals(500, search("bob", counting(large, largeLoads)).orElseThrow().getTotalElements());
+
+    // the oversized user goes to the database from now on instead of rebuilding every time
+    assertTrue(search("bob", counting(large, largeLoads)).isEmpty());
+    assertEquals(1, largeLoads.get());
+
+    // and did not push anyone else out
+    assertEquals(1, search("alice", counting(small, smallLoads)).orElseThrow().getTotalElements());
+    assertEquals(1, smallLoads.get());
+  }
+
+  @Test
+  void indexGrowingOverBudgetIsDropped() {
+    AtomicInteger aliceLoads = new AtomicInteger();
+    AtomicInteger bobLoads = new AtomicInteger();
+
+    search("alice", counting(small, aliceLoads));
+    search("bob", counting(small, bobLoads));
+
+    // one write that takes alice's index over the whole budget on its own
+    ContactResponse huge = ContactResponse.builder()
+        .id("huge")
+        .firstName(IntStream.range(0, 400).mapToObj(i -> "word" + i).collect(Collectors.joining(" ")))
+        .lastName("last")
+        .version(0L)
+        .build();
+    contactSearchIndex.saved("alice", huge);
+
+    assertTrue(search("alice", counting(small, aliceLoads)).isEmpty());
+    assertEquals(1, aliceLoads.get());
+    assertTrue(search("bob", counting(small, bobLoads)).isPresent());
+    assertEquals(1, bobLoads.get());
+
+    // an invalidation, such as after a delete by filter, lets the user be indexed again
+    contactSearchIndex.invalidate("alice");
+    assertTrue(search("alice", counting(small, aliceLoads)).isPresent());
+    assertEquals(2, aliceLoads.get());
+  }
+
+  private Optional<Page<ContactResponse>> search(String username, Supplier<List<ContactResponse>> loader) {
+    SearchContactRequest request = SearchContactRequest.builder()
+        .page(0)
+        .size(10)
+        .build();
+    return contactSearchIndex.search(username, request, loader);
+  }
+
+  private static Supplier<List<ContactResponse>> counting(List<ContactResponse> contacts, AtomicInteger loads) {
+    return () -> {
+      loads.incrementAndGet();
+      return contacts;
+    };
+  }
+
+  private static List<ContactResponse> contacts(String prefix, int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> ContactResponse.builder()
+            .id(prefix + "-" + i)
+            .firstName(prefix + " first " + i)
+            .lastName("last " + i)
+            .email(prefix + i + "@example.com")
+            .phone("0812" + (100000 + i))
+            .version(0L)
+            .build())
+        .toList();
+  }
+}
@@ -0,0 +1,87 @@
+package com.learn.learn_spring_rest.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.learn.learn_spring_rest.model.ContactResponse;
+
+/**
+ * Fuzzy name search on one user's in-memory index against the plain substring
+ * search, for a user with {@code contacts} generated names. The queries are a
+ * typo, a sound-alike spelling, a two word name and a miss. Run
+ * {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FuzzySearchBenchmark {
+
+  private static final String[] SYLLABLES = { "jo", "an", "mar", "ri", "ka", "su", "de", "lin", "to", "ha", "ni",
+      "el", "sa", "ro", "be", "chri", "ste", "phen", "wil", "son" };
+
+  @Param({ "10000", "100000" })
+  private int contacts;
+
+  @Param({ "jonhson", "stefen", "maria wilson", "qqqq" })
+  private String query;
+
+  private UserContactIndex index;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    List<ContactResponse> responses = new ArrayList<>(contacts);
+    for (int i = 0; i < contacts; i++) {
+      responses.add(ContactResponse.builder()
+          .id("contact-" + i)
+          .firstName(name(random, 2 + random.nextInt(2)))
+          .lastName(name(random, 2 + random.nextInt(3)))
+          .email("contact" + i + "@example.com")
+          .build());
+    }
+    index = new UserContactIndex(responses);
+  }
+
+  @Benchmark
+  public UserContactIndex.Result fuzzy() {
+    return index.fuzzySearch(query, null, null, 0, 10);
+  }
+
+  @Benchmark
+  public UserContactIndex.Result substring() {
+    return index.search(query, null, null, 0, 10);
+  }
+
+  private static String name(Random random, int syllables) {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < syllables; i++) {
+      name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+    }
+    name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+    return name.toString();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FuzzySearchBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,56 @@
+package com.learn.learn_spring_rest.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link BCrypt} with the original implementation kept in
+ * {@link ReferenceBCrypt}. Run {@link #main(String[])} from the test
+ * classpath, add {@code -prof gc} to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BCryptBenchmark {
+
+  @Param({ "10", "12" })
+  private int logRounds;
+
+  private String salt;
+
+  @Setup
+  public void setUp() {
+    salt = BCrypt.gensalt(logRounds);
+  }
+
+  @Benchmark
+  public String optimized() {
+    return BCrypt.hashpw("correct horse battery staple", salt);
+  }
+
+  @Benchmark
+  public String reference() {
+    return ReferenceBCrypt.hashpw("correct horse battery staple", salt);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(BCryptBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,55 @@
+package com.learn.learn_spring_rest.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.SecureRandom;
+
+import org.junit.jupiter.api.Test;
+
+class BCryptTest {
+
+  private final SecureRandom random = new SecureRandom();
+
+  @Test
+  void knownVector() {
+    assertEquals("$2a$06$DCq7YPn5Rq63x1Lad4cll.TV4S6ytwfsfvkgY8jIucDrjc8deX1s.",
+        BCrypt.hashpw("", "$2a$06$DCq7YPn5Rq63x1Lad4cll."));
+  }
+
+  @Test
+  void sameOutputAsReference() {
+    String[] passwords = { "", "a", "test", "rahasia", "pässwördÿ",
+        "012345678901234567890123456789012345678901234567890123456789012345678901" };
+
+    for (String prefix : new String[] { "$2a", "$2b", "$2y" }) {
+      for (String password : passwords) {
+        String salt = BCrypt.gensalt(prefix, 4, random);
+        assertEquals(ReferenceBCrypt.hashpw(password, salt), BCrypt.hashpw(password, salt));
+      }
+    }
+  }
+
+  @Test
+  void sameOutputAsReferenceForSignExtensionModes() {
+    for (int i = 0; i < 50; i++) {
+      byte[] password = new byte[1 + random.nextInt(72)];
+      random.nextBytes(password);
+
+      String salt = BCrypt.gensalt("$2a", 4, random);
+      assertEquals(ReferenceBCrypt.hashpw(password, salt), BCrypt.hashpw(password, salt));
+
+      String buggySalt = "$2x$" + salt.substring(4);
+      assertEquals(ReferenceBCrypt.hashpw(password, buggySalt), BCrypt.hashpw(password, buggySalt));
+    }
+  }
+
+  @Test
+  void checkpw() {
+    String hashed = BCrypt.hashpw("test", BCrypt.gensalt(4));
+    assertTrue(BCrypt.checkpw("test", hashed));
+    assertTrue(ReferenceBCrypt.checkpw("test", hashed));
+    assertFalse(BCrypt.checkpw("wrong", hashed));
+  }
+}
@@ -0,0 +1,60 @@
+package com.learn.learn_spring_rest.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+  @Test
+  void noFalseNegatives() {
+    BloomFilter filter = new BloomFilter(100000, 0.01);
+    List<String> tokens = IntStream.range(0, 100000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+    tokens.forEach(filter::put);
+
+    assertTrue(tokens.stream().allMatch(filter::mightContain));
+    assertEquals(100000, filter.insertions());
+  }
+
+  @Test
+  void falsePositiveRateNearTarget() {
+    BloomFilter filter = new BloomFilter(10000, 0.01);
+    IntStream.range(0, 10000).forEach(i -> filter.put("issued-" + i));
+
+    long falsePositives = IntStream.range(0, 10000).filter(i -> filter.mightContain("random-" + i)).count();
+
+    assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    assertTrue(filter.expectedFpp() < 0.02);
+  }
+
+  @Test
+  void concurrentPutsAreNotLost() throws Exception {
+    BloomFilter filter = new BloomFilter(80000, 0.01);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        int offset = thread * 10000;
+        futures.add(executor.submit(() -> IntStream.range(offset, offset + 10000)
+            .forEach(i -> filter.put("token-" + i))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(IntStream.range(0, 80000).allMatch(i -> filter.mightContain("token-" + i)));
+  }
+}
@@ -0,0 +1,119 @@
+package com.learn.learn_spring_rest.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.learn.learn_spring_rest.repository.SessionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenFilterTest {
+
+  private final SessionRepository sessionRepository = mock(SessionRepository.class);
+
+  // what a rebuild snapshot sees, the session rows committed so far
+  private final Queue<String> committed = new ConcurrentLinkedQueue<>();
+
+  private TokenFilter tokenFilter;
+
+  @BeforeEach
+  void setUp() {
+    when(sessionRepository.findAllTokens()).thenAnswer(invocation -> new ArrayList<>(committed));
+
+    tokenFilter = new TokenFilter();
+    ReflectionTestUtils.setField(tokenFilter, "sessionRepository", sessionRepository);
+    ReflectionTestUtils.setField(tokenFilter, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(tokenFilter, "enabled", true);
+    ReflectionTestUtils.setField(tokenFilter, "expectedInsertions", 100000L);
+    ReflectionTestUtils.setField(tokenFilter, "fpp", 0.001);
+    tokenFilter.init();
+  }
+
+  @Test
+  void rebuildLoadsIssuedTokens() {
+    committed.add("issued");
+    tokenFilter.rebuild();
+
+    assertTrue(tokenFilter.mightContain("issued"));
+    assertFalse(tokenFilter.mightContain("forged"));
+  }
+
+  @Test
+  void disabledFilterAcceptsEverything() {
+    ReflectionTestUtils.setField(tokenFilter, "enabled", false);
+    tokenFilter.rebuild();
+
+    assertTrue(tokenFilter.mightContain("forged"));
+  }
+
+  @Test
+  void rebuildKeepsTokenPutAfterSnapshot() {
+    tokenFilter.rebuild();
+    when(sessionRepository.findAllTokens()).thenAnswer(invocation -> {
+      List<String> snapshot = new ArrayList<>(committed);
+      // a login committing between the snapshot and the swap
+      committed.add("late");
+      tokenFilter.put("late");
+      return snapshot;
+    });
+
+    tokenFilter.rebuild();
+
+    assertTrue(tokenFilter.mightContain("late"));
+  }
+
+  @Test
+  void putInsideTransactionWaitsForCommit() {
+    tokenFilter.rebuild();
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      tokenFilter.put("refreshed");
+      assertFalse(tokenFilter.mightContain("refreshed"));
+
+      // a rebuild before the commit cannot see the row, the put after commit still lands
+      tokenFilter.rebuild();
+      committed.add("refreshed");
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertTrue(tokenFilter.mightContain("refreshed"));
+  }
+
+  @Test
+  void noFalseNegativesWhileRebuilding() throws Exception {
+    tokenFilter.rebuild();
+
+    Thread logins = new Thread(() -> {
+      for (int i = 0; i < 20000; i++) {
+        String token = "token-" + i;
+        committed.add(token);
+        tokenFilter.put(token);
+      }
+    });
+    logins.start();
+    while (logins.isAlive()) {
+      tokenFilter.rebuild();
+    }
+    logins.join();
+
+    for (int i = 0; i < 20000; i++) {
+      assertTrue(tokenFilter.mightContain("token-" + i), "token-" + i);
+    }
+  }
+}
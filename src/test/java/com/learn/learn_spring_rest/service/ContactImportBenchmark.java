@@ -0,0 +1,113 @@
+package com.learn.learn_spring_rest.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+
+import com.learn.learn_spring_rest.LearnSpringRestApplication;
+import com.learn.learn_spring_rest.entity.User;
+import com.learn.learn_spring_rest.model.ImportContactResponse;
+import com.learn.learn_spring_rest.repository.ContactCounterRepository;
+import com.learn.learn_spring_rest.repository.ContactRepository;
+import com.learn.learn_spring_rest.repository.UserRepository;
+
+/**
+ * Wall time of one 100k row CSV import against the configured database, from
+ * the request stream to the last committed batch. Divide {@link #ROWS} by the
+ * reported time for rows per second. Run {@link #main(String[])} with the
+ * datasource environment set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContactImportBenchmark {
+
+  private static final String USERNAME = "contact-import-benchmark";
+
+  private static final int ROWS = 100_000;
+
+  private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+  private ConfigurableApplicationContext context;
+
+  private ContactImportService contactImportService;
+
+  private ContactRepository contactRepository;
+
+  private ContactCounterRepository contactCounterRepository;
+
+  private UserRepository userRepository;
+
+  private User user;
+
+  private byte[] csv;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(LearnSpringRestApplication.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.jpa.properties.hibernate.show_sql=false");
+    contactImportService = context.getBean(ContactImportService.class);
+    contactRepository = context.getBean(ContactRepository.class);
+    contactCounterRepository = context.getBean(ContactCounterRepository.class);
+    userRepository = context.getBean(UserRepository.class);
+
+    user = new User();
+    user.setUsername(USERNAME);
+    user.setPassword("-");
+    user.setName("Benchmark");
+    userRepository.save(user);
+
+    StringBuilder builder = new StringBuilder("firstName,lastName,email,phone\n");
+    for (int i = 0; i < ROWS; i++) {
+      builder.append("john ").append(i).append(",doe,john").append(i).append("@example.com,0812")
+          .append(i).append('\n');
+    }
+    csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @TearDown(Level.Iteration)
+  public void clear() {
+    contactRepository.deleteAllInBatch(contactRepository.findAllByUser(user));
+    contactCounterRepository.deleteById(USERNAME);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    userRepository.delete(user);
+    context.close();
+  }
+
+  @Benchmark
+  public ImportContactResponse importCsv() throws IOException {
+    return contactImportService.importContacts(user, TEXT_CSV, new ByteArrayInputStream(csv));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ContactImportBenchmark.class.getSimpleName()).build()).run();
+  }
+}